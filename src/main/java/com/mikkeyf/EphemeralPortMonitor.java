@@ -0,0 +1,216 @@
+package com.mikkeyf;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+/**
+ * 本地临时端口用量监控
+ * 统计正在连接的TCP探测和正常关闭后仍处于 TIME_WAIT 的连接数，用量达到上限的一定比例时
+ * 让新的探测等待，避免临时端口耗尽后 connect 失败被误判为关闭或过滤。
+ * 以 RST 方式关闭的连接、被拒绝和超时的连接不会进入 TIME_WAIT，只在连接期间占用端口
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 02:10
+ */
+public final class EphemeralPortMonitor {
+
+    // Linux 的 TIME_WAIT 持续 60 秒
+    public static final long DEFAULT_TIME_WAIT_MILLIS = 60_000;
+    public static final double DEFAULT_HIGH_WATER = 0.8;
+
+    // 读取不到系统配置时按 IANA 建议的 49152-65535 估算
+    private static final int FALLBACK_EPHEMERAL_PORTS = 16384;
+    // 等待期间定期检查取消标记
+    private static final long MAX_WAIT_MILLIS = 100;
+
+    private final int capacity;
+    private final long timeWaitNanos;
+    private final int highWaterLimit;
+    private int limit; // 连接因端口不足失败后临时降低，之后逐步恢复到 highWaterLimit
+
+    private int inFlight;
+    // 进入 TIME_WAIT 的连接的到期时间，按时间顺序排列的环形队列
+    private long[] timeWaitExpiry = new long[256];
+    private int timeWaitHead;
+    private int timeWaitCount;
+    private long throttleCount;
+    private long exhaustedCount;
+
+    /**
+     * @param capacity        可用的本地端口数
+     * @param timeWaitMillis  连接正常关闭后占用端口的时间
+     * @param highWater       用量达到 capacity 的该比例时开始限流（0-1）
+     */
+    public EphemeralPortMonitor(int capacity, long timeWaitMillis, double highWater) {
+        if (capacity <= 0 || timeWaitMillis < 0 || highWater <= 0 || highWater > 1) {
+            throw new IllegalArgumentException("临时端口监控参数无效");
+        }
+        this.capacity = capacity;
+        this.timeWaitNanos = TimeUnit.MILLISECONDS.toNanos(timeWaitMillis);
+        this.highWaterLimit = Math.max(1, (int) (capacity * highWater));
+        this.limit = highWaterLimit;
+    }
+
+    public EphemeralPortMonitor(int capacity) {
+        this(capacity, DEFAULT_TIME_WAIT_MILLIS, DEFAULT_HIGH_WATER);
+    }
+
+    /**
+     * 进程内所有扫描共享的监控，容量取系统的临时端口范围
+     */
+    public static EphemeralPortMonitor getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    private static final class Holder {
+        private static final EphemeralPortMonitor DEFAULT = new EphemeralPortMonitor(systemEphemeralPortCount());
+    }
+
+    /**
+     * 系统临时端口范围的大小，Linux 读取 ip_local_port_range，其他系统按 IANA 范围估算
+     */
+    static int systemEphemeralPortCount() {
+        Path range = Paths.get("/proc/sys/net/ipv4/ip_local_port_range");
+        try {
+            String[] parts = Files.readString(range).trim().split("\\s+");
+            return Integer.parseInt(parts[1]) - Integer.parseInt(parts[0]) + 1;
+        } catch (IOException | RuntimeException e) {
+            return FALLBACK_EPHEMERAL_PORTS;
+        }
+    }
+
+    /**
+     * 开始一次连接前调用，用量达到上限时等待，直到有端口释放或 cancelled 返回 true
+     *
+     * @return 取得端口返回 true，被取消返回 false
+     */
+    public synchronized boolean acquire(BooleanSupplier cancelled) {
+        ScanEvents.PortThrottleEvent throttled = null;
+        while (true) {
+            long now = System.nanoTime();
+            expire(now);
+            if (inFlight + timeWaitCount < limit) {
+                inFlight++;
+                commitThrottle(throttled);
+                return true;
+            }
+            if (cancelled.getAsBoolean()) {
+                commitThrottle(throttled);
+                return false;
+            }
+            if (throttled == null) {
+                throttled = new ScanEvents.PortThrottleEvent();
+                throttled.begin();
+                throttleCount++;
+            }
+
+            long waitMillis = MAX_WAIT_MILLIS;
+            if (timeWaitCount > 0) {
+                long untilExpiry = timeWaitExpiry[timeWaitHead] - now;
+                waitMillis = Math.max(1, Math.min(waitMillis, TimeUnit.NANOSECONDS.toMillis(untilExpiry) + 1));
+            }
+            try {
+                wait(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                commitThrottle(throttled);
+                return false;
+            }
+        }
+    }
+
+    private void commitThrottle(ScanEvents.PortThrottleEvent throttled) {
+        if (throttled != null) {
+            throttled.end();
+            if (throttled.shouldCommit()) {
+                throttled.inUse = inFlight + timeWaitCount;
+                throttled.limit = limit;
+                throttled.commit();
+            }
+        }
+    }
+
+    /**
+     * 连接结束后调用
+     *
+     * @param timeWait 连接是否由本端正常关闭、进入 TIME_WAIT
+     */
+    public synchronized void release(boolean timeWait) {
+        inFlight--;
+        if (limit < highWaterLimit) {
+            limit++; // 每完成一次连接恢复一点上限
+        }
+        if (timeWait && timeWaitNanos > 0) {
+            if (timeWaitCount == timeWaitExpiry.length) {
+                grow();
+            }
+            timeWaitExpiry[(timeWaitHead + timeWaitCount) % timeWaitExpiry.length] = System.nanoTime() + timeWaitNanos;
+            timeWaitCount++;
+        } else {
+            notifyAll();
+        }
+    }
+
+    /**
+     * 连接因本地地址或端口不足失败（BindException）时调用，
+     * 把上限降到当前用量，之后的探测等待已占用的端口释放
+     */
+    public synchronized void exhausted() {
+        exhaustedCount++;
+        limit = Math.max(1, Math.min(limit, inFlight + timeWaitCount - 1));
+    }
+
+    private void expire(long now) {
+        int expired = 0;
+        while (timeWaitCount > 0 && timeWaitExpiry[timeWaitHead] - now <= 0) {
+            timeWaitHead = (timeWaitHead + 1) % timeWaitExpiry.length;
+            timeWaitCount--;
+            expired++;
+        }
+        if (expired > 0) {
+            limit = Math.min(highWaterLimit, limit + expired);
+            notifyAll();
+        }
+    }
+
+    private void grow() {
+        long[] grown = new long[timeWaitExpiry.length * 2];
+        for (int i = 0; i < timeWaitCount; i++) {
+            grown[i] = timeWaitExpiry[(timeWaitHead + i) % timeWaitExpiry.length];
+        }
+        timeWaitExpiry = grown;
+        timeWaitHead = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 当前估算的端口用量：正在连接的数量加上 TIME_WAIT 中的数量
+     */
+    public synchronized int getInUse() {
+        expire(System.nanoTime());
+        return inFlight + timeWaitCount;
+    }
+
+    /**
+     * 因用量达到上限而等待过的探测次数
+     */
+    public synchronized long getThrottleCount() {
+        return throttleCount;
+    }
+
+    /**
+     * 因本地端口不足而连接失败的次数
+     */
+    public synchronized long getExhaustedCount() {
+        return exhaustedCount;
+    }
+}
@@ -0,0 +1,188 @@
+package com.mikkeyf;
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+/**
+ * 双栈主机的地址选择，参照 RFC 8305（Happy Eyeballs v2）
+ * 主机同时有 IPv6 和 IPv4 地址时，先向 IPv6 地址发起一次 TCP 连接，250ms 内没有结果再同时向 IPv4 地址发起，
+ * 先得到明确答复（连接成功或被拒绝）的地址族胜出，其余连接随即关闭。
+ * 扫描中每台主机只竞速一次，之后的探测都使用胜出的地址，一个地址族不通时不会让每个探测都等满超时。
+ * 竞速连接与探测一样绑定源地址、向临时端口监视器申请端口，源地址只有一个地址族时另一族自然落败
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 03:20
+ */
+public final class HappyEyeballs {
+
+    // RFC 8305 建议的连接尝试间隔
+    public static final long CONNECTION_ATTEMPT_DELAY_MILLIS = 250;
+
+    private HappyEyeballs() {
+    }
+
+    /**
+     * 解析主机并选择探测使用的地址
+     * 只有一个地址族时直接返回该族的第一个地址；两个地址族都没有答复时返回系统默认的首选地址
+     *
+     * @param port    用于竞速的TCP端口，被拒绝也说明该地址族可达
+     * @param timeout 单个连接的超时（毫秒）
+     * @throws UnknownHostException 主机无法解析时
+     */
+    public static InetAddress select(String host, int port, int timeout, SocketFactory factory, Executor executor)
+            throws UnknownHostException {
+        return select(host, port, timeout, factory, null, null, executor);
+    }
+
+    /**
+     * 同 {@link #select(String, int, int, SocketFactory, Executor)}，竞速连接使用与探测相同的源地址绑定和临时端口监视器
+     *
+     * @param binding 源地址绑定，null 表示由系统选择
+     * @param monitor 临时端口监视器，null 表示不受限制
+     */
+    public static InetAddress select(String host, int port, int timeout, SocketFactory factory,
+                                     SourceBinding binding, EphemeralPortMonitor monitor, Executor executor)
+            throws UnknownHostException {
+        InetAddress[] all = InetAddress.getAllByName(host);
+        return select(List.of(all), port, timeout, factory, binding, monitor, executor);
+    }
+
+    static InetAddress select(List<InetAddress> candidates, int port, int timeout, SocketFactory factory,
+                              SourceBinding binding, EphemeralPortMonitor monitor, Executor executor) {
+        InetAddress ipv6 = null;
+        InetAddress ipv4 = null;
+        for (InetAddress address : candidates) {
+            if (ipv6 == null && address instanceof Inet6Address) {
+                ipv6 = address;
+            } else if (ipv4 == null && address instanceof Inet4Address) {
+                ipv4 = address;
+            }
+        }
+        if (ipv6 == null || ipv4 == null) {
+            return candidates.get(0);
+        }
+
+        Race race = new Race(port, timeout, factory, binding, monitor, executor);
+        try {
+            // IPv6 先行，失败或超过尝试间隔后再加入 IPv4
+            CompletableFuture<Void> first = race.attempt(ipv6);
+            await(first, CONNECTION_ATTEMPT_DELAY_MILLIS);
+            if (!race.winner.isDone()) {
+                CompletableFuture<Void> second = race.attempt(ipv4);
+                CompletableFuture.allOf(first, second).thenRun(() -> race.winner.complete(null));
+                await(race.winner, timeout + CONNECTION_ATTEMPT_DELAY_MILLIS);
+            }
+            InetAddress winner = race.winner.getNow(null);
+            return winner != null ? winner : candidates.get(0);
+        } finally {
+            race.winner.complete(null); // 还在等待临时端口的尝试不再连接
+            race.closeAll();
+        }
+    }
+
+    /**
+     * 最多等待 millis 毫秒
+     */
+    private static void await(CompletableFuture<?> future, long millis) {
+        try {
+            future.get(millis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // 由调用方检查结果
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 一次竞速的状态，第一个得到明确答复的地址完成 winner
+     */
+    private static final class Race {
+        private final int port;
+        private final int timeout;
+        private final SocketFactory factory;
+        private final SourceBinding binding;
+        private final EphemeralPortMonitor monitor;
+        private final Executor executor;
+        private final CompletableFuture<InetAddress> winner = new CompletableFuture<>();
+        private final Queue<Socket> sockets = new ConcurrentLinkedQueue<>();
+
+        Race(int port, int timeout, SocketFactory factory, SourceBinding binding, EphemeralPortMonitor monitor,
+             Executor executor) {
+            this.port = port;
+            this.timeout = timeout;
+            this.factory = factory;
+            this.binding = binding;
+            this.monitor = monitor;
+            this.executor = executor;
+        }
+
+        /**
+         * 异步向 address 发起连接，返回的 future 在这次尝试结束时完成
+         */
+        CompletableFuture<Void> attempt(InetAddress address) {
+            try {
+                return CompletableFuture.runAsync(() -> connect(address), executor);
+            } catch (RejectedExecutionException e) {
+                connect(address);
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        private void connect(InetAddress address) {
+            if (monitor != null && !monitor.acquire(winner::isDone)) {
+                return; // 等待临时端口期间另一个地址族已胜出
+            }
+            boolean timeWait = false;
+            try (Socket socket = factory.createSocket()) {
+                sockets.add(socket);
+                if (winner.isDone()) {
+                    return;
+                }
+                if (binding != null) {
+                    binding.bind(socket);
+                }
+                socket.connect(new InetSocketAddress(address, port), timeout);
+                timeWait = true;
+                winner.complete(address);
+            } catch (ConnectException e) {
+                winner.complete(address); // 收到 RST，地址族可达
+            } catch (BindException e) {
+                // 本地地址或端口不足，与地址族是否可达无关
+                if (monitor != null) {
+                    monitor.exhausted();
+                }
+            } catch (IOException e) {
+                // 超时或不可达，等待其他地址族
+            } finally {
+                if (monitor != null) {
+                    monitor.release(timeWait);
+                }
+            }
+        }
+
+        void closeAll() {
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // 忽略
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package com.mikkeyf;
+import javax.net.SocketFactory;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
 /**
  * @Author: Mikkeyf
  * @CreateTime: 2025/10/4 15:51
@@ -33,9 +44,103 @@ public class PortScanner {
         }
     }
 
+    /**
+     * 任务调度方式
+     */
+    public enum ScheduleMode {
+        SEQUENTIAL("顺序领取"),   // 工作线程按主机、端口顺序领取任务
+        WORK_STEALING("工作窃取"); // ForkJoinPool 递归划分 主机×端口，空闲线程窃取任务
+
+        private final String displayName;
+
+        ScheduleMode(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 端口状态
+     */
+    public enum PortState {
+        OPEN("开放"),
+        CLOSED("关闭"),
+        OPEN_OR_FILTERED("开放|过滤"),
+        FILTERED("过滤"); // TCP 连接超时或不可达，无法判断端口状态
+
+        private final String displayName;
+
+        PortState(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * 根据显示名称查找状态（兼容以字符串表示状态的旧代码）
+         */
+        public static PortState fromDisplayName(String displayName) {
+            for (PortState state : values()) {
+                if (state.displayName.equals(displayName)) {
+                    return state;
+                }
+            }
+            throw new IllegalArgumentException("未知的端口状态: " + displayName);
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 扫描结束的原因，除 COMPLETED 外结果都不完整
+     */
+    public enum StopReason {
+        COMPLETED("完成"),
+        TIME_BUDGET("超出时间预算"),
+        OPEN_LIMIT("达到开放端口数上限"),
+        FIRST_OPEN_PER_HOST("各主机找到首个开放端口后停止");
+
+        private final String displayName;
+
+        StopReason(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * 是否有任务因停止条件没有扫描
+         */
+        public boolean isPartial() {
+            return this != COMPLETED;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
     /**
      * UDP端口状态
+     * @deprecated 使用 {@link PortState}
      */
+    @Deprecated
     public enum UdpPortState {
         OPEN("开放"),
         CLOSED("关闭"),
@@ -68,12 +173,58 @@ public class PortScanner {
         put(8080, "HTTP-Alt（备用HTTP端口）");
     }};
 
+    // 异步单端口探测默认使用的线程池（守护线程，空闲 60 秒后回收）
+    private static final ThreadPoolExecutor PROBE_EXECUTOR = new ThreadPoolExecutor(
+            64, 64, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "port-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        PROBE_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    // 双栈地址竞速的连接尝试专用线程池，不与探测争用线程，否则探测占满线程池时竞速无法进行
+    private static final ExecutorService RACE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "happy-eyeballs");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 本地端口不足时单个TCP探测最多尝试的次数
+    private static final int MAX_BIND_ATTEMPTS = 3;
+
+    // 主机解析失败的占位标记
+    private static final Object UNRESOLVED = new Object();
+
     private final String host;
-    private final int startPort;
-    private final int endPort;
+    private final List<String> targets; // 由 host 解析出的目标主机列表
+    private PortSet tcpPorts; // TCP 流水线扫描的端口
+    private PortSet udpPorts; // UDP 流水线扫描的端口
     private final int maxThreads;
     private Protocol protocol = Protocol.TCP; // 默认TCP扫描
+    private ScheduleMode scheduleMode = ScheduleMode.SEQUENTIAL;
+    private int tcpThreads; // TCP 流水线线程数，0 表示使用 maxThreads
+    private int udpThreads; // UDP 流水线线程数，0 表示使用 maxThreads
+    private int tcpTimeout = 500; // TCP 连接超时（毫秒）
+    private int udpTimeout = 1000; // UDP 等待响应超时（毫秒）
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+    private boolean reportFiltered = false;
+    private UdpPayloadDatabase udpPayloads = UdpPayloadDatabase.getDefault();
+    private SocketFactory socketFactory = SocketFactory.getDefault();
+    private boolean abortiveClose = false; // 以 RST 关闭探测连接，不留下 TIME_WAIT
+    private SourceBinding sourceBinding; // null 表示由系统选择源地址和端口
+    private EphemeralPortMonitor portMonitor = EphemeralPortMonitor.getDefault();
+    private boolean happyEyeballs = true; // 双栈主机按 RFC 8305 竞速选择地址族
+    // probeAsync 竞速选出的各主机地址，同一主机只竞速一次
+    private final Map<String, InetAddress> probeAddresses = new ConcurrentHashMap<>();
+    private long timeBudgetMillis; // 0 表示不限时
+    private int maxOpenPorts; // 0 表示不限
+    private boolean stopAtFirstOpenPerHost = false;
     private volatile boolean isCancelled = false;
+    private final BooleanSupplier cancelledCheck = () -> isCancelled;
+    private volatile StopReason stopReason;
 
     // 回调接口，用于更新进度和结果
     private ScanCallback callback;
@@ -84,27 +235,84 @@ public class PortScanner {
         void onPortFoundDetailed(PortResult result); // 新方法，传递完整结果
         void onComplete(List<PortResult> openPorts);
         void onError(String error);
+
+        /**
+         * 扫描结束，stopReason 不是 COMPLETED 时结果不完整；默认转给 {@link #onComplete(List)}
+         */
+        default void onComplete(List<PortResult> openPorts, StopReason stopReason) {
+            onComplete(openPorts);
+        }
+    }
+
+    /**
+     * 工作线程领取每个任务前的许可，供 {@link ScanPublisher} 按订阅者的需求限制扫描速度
+     */
+    interface TaskGate {
+        /**
+         * 等待直到可以领取下一个任务，在扫描的锁之外调用；stopped 变为 true 时应尽快返回 false
+         *
+         * @return false 表示不再领取任务
+         */
+        boolean awaitPermit(BooleanSupplier stopped);
     }
 
     /**
      * 端口扫描结果类
      */
     public static class PortResult {
+        private final String host;
         private final int port;
         private final String service;
         private final Protocol protocol;
-        private final String state; // 状态描述（TCP: "开放", UDP: "开放", "关闭", "开放|过滤"）
+        private final PortState state;
+        private final String stateText; // 状态描述，旧构造函数传入的字符串原样保留
 
-        public PortResult(int port, String service, Protocol protocol, String state) {
+        public PortResult(String host, int port, String service, Protocol protocol, PortState state) {
+            this(host, port, service, protocol, state, state.getDisplayName());
+        }
+
+        private PortResult(String host, int port, String service, Protocol protocol, PortState state, String stateText) {
+            this.host = host;
             this.port = port;
             this.service = service;
             this.protocol = protocol;
             this.state = state;
+            this.stateText = stateText;
+        }
+
+        public PortResult(int port, String service, Protocol protocol, PortState state) {
+            this(null, port, service, protocol, state);
+        }
+
+        /**
+         * 兼容以字符串表示状态的旧代码，getState() 返回传入的字符串；
+         * 不是已知状态名称时 getPortState() 按无法判断状态的 FILTERED 处理
+         * @deprecated 使用 {@link #PortResult(int, String, Protocol, PortState)}
+         */
+        @Deprecated
+        public PortResult(int port, String service, Protocol protocol, String state) {
+            this(null, port, service, protocol, parseState(state), state);
+        }
+
+        private static PortState parseState(String state) {
+            for (PortState value : PortState.values()) {
+                if (value.getDisplayName().equals(state)) {
+                    return value;
+                }
+            }
+            return PortState.FILTERED;
         }
 
         // 兼容旧代码的构造函数
         public PortResult(int port, String service) {
-            this(port, service, Protocol.TCP, "开放");
+            this(port, service, Protocol.TCP, PortState.OPEN);
+        }
+
+        /**
+         * 所属主机，使用旧构造函数创建时为 null
+         */
+        public String getHost() {
+            return host;
         }
 
         public int getPort() {
@@ -119,20 +327,41 @@ public class PortScanner {
             return protocol;
         }
 
+        /**
+         * 状态描述（TCP: "开放", "过滤", UDP: "开放", "开放|过滤"）
+         */
         public String getState() {
+            return stateText;
+        }
+
+        public PortState getPortState() {
             return state;
         }
 
         @Override
         public String toString() {
-            return String.format("端口 %d (%s): %s - %s", port, protocol.getDisplayName(), service, state);
+            String text = String.format("端口 %d (%s): %s - %s", port, protocol.getDisplayName(), service, stateText);
+            return host == null ? text : host + " " + text;
         }
     }
 
+    /**
+     * @param host 目标描述，可以是单个主机，也可以是逗号分隔的多个主机、IPv6 地址或网段（见 {@link TargetSpec}）
+     * @throws IllegalArgumentException 目标格式错误时
+     */
     public PortScanner(String host, int startPort, int endPort, int maxThreads) {
+        this(host, PortSet.range(startPort, endPort), maxThreads);
+    }
+
+    /**
+     * @param ports TCP 和 UDP 都扫描的端口集合，可以再用 setTcpPorts/setUdpPorts 分别指定
+     * @throws IllegalArgumentException 目标格式错误时
+     */
+    public PortScanner(String host, PortSet ports, int maxThreads) {
         this.host = host;
-        this.startPort = startPort;
-        this.endPort = endPort;
+        this.targets = TargetSpec.parse(host);
+        this.tcpPorts = ports;
+        this.udpPorts = ports;
         this.maxThreads = maxThreads;
     }
 
@@ -144,114 +373,374 @@ public class PortScanner {
         this.protocol = protocol;
     }
 
+    public void setScheduleMode(ScheduleMode scheduleMode) {
+        this.scheduleMode = scheduleMode;
+    }
+
+    /**
+     * TCP 和 UDP 使用同一个端口集合
+     */
+    public void setPorts(PortSet ports) {
+        this.tcpPorts = ports;
+        this.udpPorts = ports;
+    }
+
+    public void setTcpPorts(PortSet tcpPorts) {
+        this.tcpPorts = tcpPorts;
+    }
+
+    public void setUdpPorts(PortSet udpPorts) {
+        this.udpPorts = udpPorts;
+    }
+
+    public PortSet getTcpPorts() {
+        return tcpPorts;
+    }
+
+    public PortSet getUdpPorts() {
+        return udpPorts;
+    }
+
+    /**
+     * TCP 流水线的线程数，默认与 maxThreads 相同
+     */
+    public void setTcpThreads(int tcpThreads) {
+        this.tcpThreads = tcpThreads;
+    }
+
+    /**
+     * UDP 流水线的线程数，默认与 maxThreads 相同
+     * UDP 探测大部分时间在等待响应，可以比 TCP 使用更多线程
+     */
+    public void setUdpThreads(int udpThreads) {
+        this.udpThreads = udpThreads;
+    }
+
+    private int getTcpThreads() {
+        return tcpThreads > 0 ? tcpThreads : maxThreads;
+    }
+
+    private int getUdpThreads() {
+        return udpThreads > 0 ? udpThreads : maxThreads;
+    }
+
+    /**
+     * TCP 连接超时（毫秒），默认 500
+     */
+    public void setTcpTimeout(int tcpTimeout) {
+        this.tcpTimeout = tcpTimeout;
+    }
+
+    /**
+     * UDP 等待响应的超时（毫秒），默认 1000
+     */
+    public void setUdpTimeout(int udpTimeout) {
+        this.udpTimeout = udpTimeout;
+    }
+
+    /**
+     * 设置TCP超时端口的重试策略，默认不重试
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * 是否把重试后仍超时的TCP端口作为"过滤"结果报告，默认不报告
+     */
+    public void setReportFiltered(boolean reportFiltered) {
+        this.reportFiltered = reportFiltered;
+    }
+
+    /**
+     * 设置UDP探测数据库，默认使用类路径中自带的 udp-payloads
+     */
+    public void setUdpPayloads(UdpPayloadDatabase udpPayloads) {
+        this.udpPayloads = udpPayloads;
+    }
+
+    /**
+     * 设置创建TCP探测套接字的工厂，可用于代理或测试时模拟网络条件
+     */
+    public void setSocketFactory(SocketFactory socketFactory) {
+        this.socketFactory = socketFactory;
+    }
+
+    /**
+     * 是否以 SO_LINGER 0 关闭探测连接
+     * 连接以 RST 结束，本地端口不进入 TIME_WAIT，适合高并发扫描大量开放端口；
+     * 代价是对端会看到连接被重置
+     */
+    public void setAbortiveClose(boolean abortiveClose) {
+        this.abortiveClose = abortiveClose;
+    }
+
+    /**
+     * 设置TCP探测使用的本地源地址和端口范围，按轮询方式使用
+     */
+    public void setSourceBinding(SourceBinding sourceBinding) {
+        this.sourceBinding = sourceBinding;
+    }
+
+    /**
+     * 设置临时端口用量监控，默认使用进程内共享、容量为系统临时端口范围的监控；
+     * 指定了源端口范围时可以用 {@link SourceBinding#getCapacity()} 作为容量
+     */
+    public void setPortMonitor(EphemeralPortMonitor portMonitor) {
+        this.portMonitor = portMonitor;
+    }
+
+    /**
+     * 主机同时有 IPv6 和 IPv4 地址时，是否在扫描开始时竞速选择可用的地址族（见 {@link HappyEyeballs}），默认开启；
+     * 关闭后使用系统默认的首选地址
+     */
+    public void setHappyEyeballs(boolean happyEyeballs) {
+        this.happyEyeballs = happyEyeballs;
+    }
+
+    /**
+     * 扫描的时间预算（毫秒），到时停止领取新任务并中止正在进行的探测，0 表示不限时
+     */
+    public void setTimeBudget(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * 找到 maxOpenPorts 个开放端口后停止扫描，0 表示不限
+     */
+    public void setMaxOpenPorts(int maxOpenPorts) {
+        this.maxOpenPorts = maxOpenPorts;
+    }
+
+    /**
+     * 每台主机找到第一个开放端口后不再扫描该主机的其余端口
+     */
+    public void setStopAtFirstOpenPerHost(boolean stopAtFirstOpenPerHost) {
+        this.stopAtFirstOpenPerHost = stopAtFirstOpenPerHost;
+    }
+
+    /**
+     * 最近一次结束的扫描的结束原因，尚未结束过时为 null
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
     public void cancel() {
         this.isCancelled = true;
     }
 
     /**
-     * 扫描单个TCP端口
+     * 探测单个TCP端口
+     * 关闭的端口只能通过 connect 抛出的异常得知，阻塞式 Socket API 无法避免。
+     * 连接前向 portMonitor 申请本地端口，用量过高时在这里等待；
+     * 本地端口不足导致失败时换下一个源地址重试，而不是把端口误判为过滤
      */
-    private PortResult scanTcpPort(String host, int port) {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), 500); // 500ms 超时
+    private PortState probeTcpPort(InetAddress address, int port, int timeout, ProbeBuffers buffers) {
+        buffers.timedOut = false;
+        for (int bindAttempt = 1; ; bindAttempt++) {
+            if (!portMonitor.acquire(buffers.stopped)) {
+                return PortState.FILTERED; // 扫描已停止，结果不再使用
+            }
+            boolean timeWait = false;
+            try (Socket socket = socketFactory.createSocket()) {
+                buffers.inFlight = socket;
+                if (buffers.stopped.getAsBoolean()) {
+                    return PortState.FILTERED; // 发布套接字前已停止，中止时没有关闭它，不再连接
+                }
+                if (sourceBinding != null) {
+                    sourceBinding.bind(socket);
+                }
+                socket.connect(new InetSocketAddress(address, port), timeout);
+                if (abortiveClose) {
+                    socket.setSoLinger(true, 0);
+                } else {
+                    timeWait = true;
+                }
+                return PortState.OPEN;
 
-            // 获取端口服务名称
-            String service = getServiceName(port);
-            return new PortResult(port, service, Protocol.TCP, "开放");
+            } catch (ConnectException e) {
+                return PortState.CLOSED; // 收到 RST，端口关闭
 
-        } catch (IOException e) {
-            return null; // 端口关闭
+            } catch (BindException e) {
+                // 本地地址或端口不足，与目标端口状态无关
+                portMonitor.exhausted();
+                if (bindAttempt >= MAX_BIND_ATTEMPTS) {
+                    return PortState.FILTERED;
+                }
+
+            } catch (SocketTimeoutException e) {
+                // 没有任何答复，可能是丢包，可以用更长的超时重试
+                buffers.timedOut = true;
+                return PortState.FILTERED;
+
+            } catch (IOException e) {
+                // 主机不可达等已有明确答复的错误，或探测被中止，无法判断端口状态，重试也不会改变
+                return PortState.FILTERED;
+
+            } finally {
+                buffers.inFlight = null;
+                portMonitor.release(timeWait);
+            }
         }
     }
 
     /**
-     * 扫描单个UDP端口
+     * 探测单个UDP端口，收发复用 buffers 中的数据包
+     * 依次发送探测数据库中该端口的所有载荷，没有载荷时发送空数据包，然后等待任意一个响应。
+     * 套接字先 connect 到目标，内核才会把 ICMP 端口不可达作为 PortUnreachableException 交给接收方，
+     * 关闭的端口因此不必等满超时
      * 注意：UDP扫描本质上不可靠，结果仅供参考
      */
-    private PortResult scanUdpPort(String host, int port) {
+    private PortState probeUdpPort(InetAddress address, int port, int timeout, ProbeBuffers buffers) {
         try (DatagramSocket socket = new DatagramSocket()) {
-            socket.setSoTimeout(1000); // 1秒超时
+            buffers.inFlight = socket;
+            if (buffers.stopped.getAsBoolean()) {
+                return PortState.CLOSED; // 发布套接字前已停止，与被中止的探测一样按关闭处理，不再等待
+            }
+            socket.setSoTimeout(timeout);
+            socket.connect(address, port);
 
-            InetAddress address = InetAddress.getByName(host);
-            
             // 准备UDP数据包
-            byte[] sendData = getUdpProbeData(port);
-            DatagramPacket sendPacket = new DatagramPacket(sendData, sendData.length, address, port);
-            
+            DatagramPacket sendPacket = buffers.sendPacket;
+            sendPacket.setAddress(address);
+            sendPacket.setPort(port);
+
             // 发送数据包
-            socket.send(sendPacket);
-            
+            List<ByteBuffer> payloads = udpPayloads.getPayloads(port);
+            if (payloads.isEmpty()) {
+                // 已连接的套接字发送空数据包时 JDK 不会真正发出，改为发送一个零字节
+                buffers.sendData[0] = 0;
+                sendPacket.setData(buffers.sendData, 0, 1);
+                socket.send(sendPacket);
+            }
+            for (int i = 0; i < payloads.size(); i++) {
+                ByteBuffer payload = payloads.get(i);
+                int length = payload.remaining();
+                // 共享的只读缓冲区只能按绝对位置读取
+                payload.get(0, buffers.sendData, 0, length);
+                sendPacket.setData(buffers.sendData, 0, length);
+                socket.send(sendPacket);
+            }
+
             // 尝试接收响应
-            byte[] receiveData = new byte[1024];
-            DatagramPacket receivePacket = new DatagramPacket(receiveData, receiveData.length);
-            
+            DatagramPacket receivePacket = buffers.receivePacket;
+            receivePacket.setData(buffers.receiveData);
+
             try {
                 socket.receive(receivePacket);
                 // 收到响应，端口可能开放
-                String service = getServiceName(port);
-                return new PortResult(port, service, Protocol.UDP, "开放");
-                
+                return PortState.OPEN;
+
             } catch (SocketTimeoutException e) {
                 // 超时无响应，可能开放或被过滤
-                String service = getServiceName(port);
-                return new PortResult(port, service, Protocol.UDP, "开放|过滤");
+                return PortState.OPEN_OR_FILTERED;
             }
-            
+
         } catch (PortUnreachableException e) {
             // 收到ICMP端口不可达，端口关闭
-            return null;
-            
+            return PortState.CLOSED;
+
         } catch (IOException e) {
             // 其他IO异常，可能是网络问题
-            return null;
-        }
-    }
-
-    /**
-     * 根据端口生成特定的UDP探测数据
-     * 针对常见服务发送协议特定的探测包
-     */
-    private byte[] getUdpProbeData(int port) {
-        switch (port) {
-            case 53: // DNS
-                // DNS查询包（查询 example.com 的 A 记录）
-                return new byte[]{
-                    0x00, 0x1e, // Transaction ID
-                    0x01, 0x00, // Flags: standard query
-                    0x00, 0x01, // Questions: 1
-                    0x00, 0x00, // Answer RRs: 0
-                    0x00, 0x00, // Authority RRs: 0
-                    0x00, 0x00, // Additional RRs: 0
-                    0x07, 'e', 'x', 'a', 'm', 'p', 'l', 'e',
-                    0x03, 'c', 'o', 'm',
-                    0x00, // End of name
-                    0x00, 0x01, // Type: A
-                    0x00, 0x01  // Class: IN
-                };
-                
-            case 123: // NTP
-                // NTP请求包
-                return new byte[]{
-                    0x1b, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-                    0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-                    0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-                    0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-                    0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-                    0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
-                };
-                
-            case 161: // SNMP
-                // SNMP GetRequest包（简化版）
-                return new byte[]{
-                    0x30, 0x26, 0x02, 0x01, 0x00, 0x04, 0x06, 'p', 'u', 'b', 'l', 'i', 'c',
-                    (byte) 0xa0, 0x19, 0x02, 0x01, 0x01, 0x02, 0x01, 0x00, 0x02, 0x01, 0x00,
-                    0x30, 0x0e, 0x30, 0x0c, 0x06, 0x08, 0x2b, 0x06, 0x01, 0x02, 0x01, 0x01, 0x01, 0x00,
-                    0x05, 0x00
-                };
-                
-            default:
-                // 默认发送空数据包
-                return new byte[0];
+            return PortState.CLOSED;
+
+        } finally {
+            buffers.inFlight = null;
+        }
+    }
+
+    /**
+     * 探测单个端口，只有非关闭状态才生成结果对象，关闭时返回 null
+     *
+     * @throws CompletionException 主机无法解析时，原因为 UnknownHostException
+     */
+    private PortResult probe(String host, int port, Protocol protocol) {
+        InetAddress address;
+        try {
+            address = happyEyeballs ? probeAddresses.get(host) : null;
+            if (address == null) {
+                // 只有TCP探测竞速，UDP 端口上的TCP连接说明不了地址族是否可达
+                boolean race = happyEyeballs && protocol == Protocol.TCP;
+                address = resolveTarget(host, race ? port : -1);
+                if (race) {
+                    probeAddresses.putIfAbsent(host, address);
+                }
+            }
+        } catch (UnknownHostException e) {
+            // 不能返回 null，否则与端口关闭无法区分
+            throw new CompletionException(e);
+        }
+
+        ProbeBuffers buffers = new ProbeBuffers(udpPayloads.getMaxPayloadLength(), cancelledCheck, null);
+        ScanEvents.ProbeEvent event = new ScanEvents.ProbeEvent();
+        event.begin();
+        PortState state = protocol == Protocol.TCP
+                ? probeTcpPort(address, port, tcpTimeout, buffers)
+                : probeUdpPort(address, port, udpTimeout, buffers);
+        event.end();
+        if (event.shouldCommit()) {
+            event.target = host;
+            event.address = address.getHostAddress();
+            event.port = port;
+            event.protocol = protocol.getDisplayName();
+            event.outcome = state.name();
+            event.commit();
+        }
+        return state == PortState.CLOSED ? null : new PortResult(host, port, getServiceName(port), protocol, state);
+    }
+
+    /**
+     * 解析目标主机，双栈主机以TCP端口 port 竞速选择地址；port 为 -1（只扫描 UDP）时不竞速，使用系统默认的首选地址
+     */
+    private InetAddress resolveTarget(String target, int port) throws UnknownHostException {
+        return happyEyeballs && port > 0
+                ? HappyEyeballs.select(target, port, tcpTimeout, socketFactory, sourceBinding, portMonitor, RACE_EXECUTOR)
+                : InetAddress.getByName(target);
+    }
+
+    /**
+     * 每个工作线程复用的UDP收发缓冲区和数据包，以及该线程正在进行的探测
+     */
+    private static final class ProbeBuffers {
+        private final byte[] sendData;
+        private final byte[] receiveData = new byte[1024];
+        private final DatagramPacket sendPacket;
+        private final DatagramPacket receivePacket = new DatagramPacket(receiveData, receiveData.length);
+        // 扫描停止或当前主机停止后不再等待临时端口，也不再开始连接
+        private final BooleanSupplier stopped;
+        // 当前探测的主机，只由所属线程在 inFlight 为 null 时修改；不属于扫描的单次探测为 -1
+        private volatile int hostIndex = -1;
+        // 最近一次TCP探测是否超时，只由所属线程读写；只有超时的任务才重试
+        private boolean timedOut;
+        // 正在进行的探测套接字，满足停止条件时由其他线程关闭以中止探测
+        private volatile Closeable inFlight;
+
+        /**
+         * @param hostStopped 按主机序号判断主机是否已停止，不属于扫描的单次探测为 null
+         */
+        ProbeBuffers(int maxPayloadLength, BooleanSupplier scanStopped, IntPredicate hostStopped) {
+            this.sendData = new byte[Math.max(1, maxPayloadLength)];
+            this.sendPacket = new DatagramPacket(sendData, 0);
+            this.stopped = hostStopped == null ? scanStopped
+                    : () -> scanStopped.getAsBoolean() || hostStopped.test(hostIndex);
+        }
+
+        /**
+         * 关闭正在进行的探测（hostIndex 为 -1 时不限主机），探测线程随即以异常结束
+         * 主机只在没有探测进行时修改，每次探测的套接字都是新对象，前后两次读到同一个套接字时
+         * 中间读到的主机就是它所属的主机；线程已换到其他主机时不会误关新主机的套接字，也不必为每次探测分配对象
+         */
+        void abort(int hostIndex) {
+            Closeable socket = inFlight;
+            if (socket == null || (hostIndex >= 0 && (this.hostIndex != hostIndex || inFlight != socket))) {
+                return;
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 忽略
+            }
         }
     }
 
@@ -288,93 +777,757 @@ public class PortScanner {
     }
 
     /**
-     * 多线程扫描端口
+     * 多线程扫描端口（同步版本，阻塞直到扫描结束）
      */
     public void scanPorts() {
-        List<PortResult> openPorts = Collections.synchronizedList(new ArrayList<>());
-        
-        // 根据协议类型计算总端口数
-        int portsPerProtocol = endPort - startPort + 1;
-        int totalPorts = protocol == Protocol.BOTH ? portsPerProtocol * 2 : portsPerProtocol;
+        try {
+            scanAsync().join();
+        } catch (CancellationException e) {
+            // 扫描已被取消
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 异步扫描端口，使用内部线程池，扫描结束后自动关闭
+     * 每个协议使用独立的线程池（线程数见 {@link #setTcpThreads(int)}、{@link #setUdpThreads(int)}），
+     * TCP+UDP 扫描时两条流水线互不等待
+     */
+    public CompletableFuture<List<PortResult>> scanAsync() {
+        ExecutorService tcpPool = protocol == Protocol.UDP ? null : newPool(getTcpThreads());
+        ExecutorService udpPool = protocol == Protocol.TCP ? null : newPool(getUdpThreads());
+        CompletableFuture<List<PortResult>> future = scan(tcpPool, udpPool, callback, null);
+        future.whenComplete((results, e) -> {
+            if (tcpPool != null) {
+                tcpPool.shutdown();
+            }
+            if (udpPool != null) {
+                udpPool.shutdown();
+            }
+        });
+        return future;
+    }
 
-        ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
-        List<Future<PortResult>> futures = new ArrayList<>();
+    private ExecutorService newPool(int threads) {
+        return scheduleMode == ScheduleMode.WORK_STEALING
+                ? new ForkJoinPool(threads)
+                : Executors.newFixedThreadPool(threads);
+    }
 
-        try {
-            // 根据协议类型提交扫描任务
-            if (protocol == Protocol.TCP || protocol == Protocol.BOTH) {
-                // TCP扫描
-                for (int port = startPort; port <= endPort; port++) {
-                    if (isCancelled) break;
-                    final int currentPort = port;
-                    futures.add(executor.submit(() -> scanTcpPort(host, currentPort)));
+    /**
+     * 异步扫描端口
+     * 顺序领取模式下每个协议向 executor 提交各自线程数的工作任务，TCP+UDP 扫描时 executor 的线程数
+     * 应不少于两者之和，否则后提交的流水线要等前面的工作任务结束；工作窃取模式下向 ForkJoinPool 提交
+     * 根划分任务，executor 不是 ForkJoinPool 时每个协议改用内部的 ForkJoinPool。
+     * 由最后结束的任务完成返回的 future，不额外占用等待线程。正常结束时结果按主机、端口排序；
+     * 扫描被取消时 future 以 CancellationException 结束。
+     * 对返回的 future 调用 cancel、orTimeout 等使其异常结束时，扫描也会随之取消。
+     * executor 是 {@link ScanEngine} 的会话时总是按顺序领取方式调度，工作任务每完成一个探测就重新提交，
+     * 与同一引擎上的其他扫描交替执行
+     */
+    public CompletableFuture<List<PortResult>> scanAsync(Executor executor) {
+        return scan(executor, executor, callback, null);
+    }
+
+    /**
+     * 以指定的回调和任务许可（null 表示不受限制）异步扫描，只作用于本次扫描，不修改扫描器的回调
+     */
+    CompletableFuture<List<PortResult>> scanAsync(Executor executor, ScanCallback callback, TaskGate gate) {
+        return scan(executor, executor, callback, gate);
+    }
+
+    private CompletableFuture<List<PortResult>> scan(Executor tcpExecutor, Executor udpExecutor,
+                                                     ScanCallback callback, TaskGate gate) {
+        List<ExecutorService> internalPools = new ArrayList<>();
+        // 共享引擎自己负责公平调度，不再另建 ForkJoinPool
+        boolean workStealing = scheduleMode == ScheduleMode.WORK_STEALING
+                && !(tcpExecutor instanceof ScanEngine.Session);
+        if (workStealing) {
+            tcpExecutor = forkJoinPool(tcpExecutor, getTcpThreads(), internalPools);
+            udpExecutor = forkJoinPool(udpExecutor, getUdpThreads(), internalPools);
+        }
+
+        ScanRun run = new ScanRun(tcpExecutor, udpExecutor, workStealing, callback, gate);
+        run.future.whenComplete((results, e) -> {
+            if (e != null) {
+                cancel();
+            }
+            for (ExecutorService pool : internalPools) {
+                pool.shutdown();
+            }
+        });
+        run.start();
+        return run.future;
+    }
+
+    private Executor forkJoinPool(Executor executor, int threads, List<ExecutorService> internalPools) {
+        if (executor == null || executor instanceof ForkJoinPool) {
+            return executor;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        internalPools.add(pool);
+        return pool;
+    }
+
+    /**
+     * 异步探测单个端口，使用内部共享线程池
+     */
+    public CompletableFuture<PortResult> probeAsync(String host, int port, Protocol protocol) {
+        return probeAsync(host, port, protocol, PROBE_EXECUTOR);
+    }
+
+    /**
+     * 异步探测单个端口，端口关闭时结果为 null，主机无法解析时 future 以 UnknownHostException 异常结束
+     */
+    public CompletableFuture<PortResult> probeAsync(String host, int port, Protocol protocol, Executor executor) {
+        if (protocol == Protocol.BOTH) {
+            throw new IllegalArgumentException("单端口探测只支持 TCP 或 UDP");
+        }
+        return CompletableFuture.supplyAsync(() -> probe(host, port, protocol), executor);
+    }
+
+    /**
+     * 单次扫描的运行状态
+     * 每台主机的任务编号为 0..tasksPerHost-1，TCP 端口在前、UDP 端口在后，按端口集合中的顺序排列；
+     * 全局任务编号 = 主机序号 * tasksPerHost + 主机内编号。
+     * 每个协议是一条独立的流水线（{@link Lane}），有各自的执行器、线程数、超时和任务游标，
+     * 结果和进度在 dispatchLock 内串行回调并合并，所有流水线结束后才结束本次扫描。
+     * 满足停止条件后不再领取新任务，并关闭各线程正在使用的套接字以中止进行中的探测，
+     * 之后到达的探测结果一律丢弃
+     */
+    private class ScanRun {
+        // 未知延迟的主机按 10ms 估算
+        private static final long DEFAULT_LATENCY_NANOS = 10_000_000L;
+        // 工作窃取模式下每个叶子任务的目标耗时，慢主机的叶子任务因此更小
+        private static final long LEAF_TARGET_NANOS = 100_000_000L;
+        private static final int MAX_LEAF_TASKS = 64;
+
+        // 本次扫描的端口集合，扫描期间修改设置不影响已开始的扫描
+        private final PortSet laneTcpPorts = protocol != Protocol.UDP ? tcpPorts : null;
+        private final PortSet laneUdpPorts = protocol != Protocol.TCP ? udpPorts : null;
+        private final int tasksPerHost = (laneTcpPorts != null ? laneTcpPorts.size() : 0)
+                + (laneUdpPorts != null ? laneUdpPorts.size() : 0);
+        // 双栈竞速使用的TCP端口，只扫描 UDP 时为 -1，不竞速
+        private final int racePort = laneTcpPorts != null ? laneTcpPorts.first() : -1;
+        private final long totalTasks = (long) tasksPerHost * targets.size();
+        private final List<Lane> lanes = new ArrayList<>(2);
+        private final AtomicInteger activeLanes;
+        private final Object dispatchLock = new Object();
+        private final List<PortResult> openPorts = new ArrayList<>();
+        private final CompletableFuture<List<PortResult>> future = new CompletableFuture<>();
+        private long scannedPorts;
+        private long progressTotal = totalTasks; // 包含已安排的重试任务
+        private final ScanEvents.ScanEvent scanEvent = new ScanEvents.ScanEvent();
+        private final boolean workStealing;
+
+        // 满足停止条件后的结束原因，null 表示仍在扫描；只由第一个满足的条件设置
+        private final AtomicReference<StopReason> stopReason = new AtomicReference<>();
+        private int openFound; // 由 dispatchLock 保护
+        // 因主机已找到开放端口而跳过、或探测被中止结果被丢弃的任务数，由 dispatchLock 保护
+        private long skippedTasks;
+        // 每台主机找到首个开放端口后置 1，未开启该停止条件时为 null
+        private final AtomicIntegerArray stoppedHosts =
+                stopAtFirstOpenPerHost ? new AtomicIntegerArray(targets.size()) : null;
+        private final BooleanSupplier stoppedCheck = this::stopped;
+        private final ScanCallback callback; // 本次扫描的回调，开始后修改扫描器的回调不影响本次扫描
+        private final TaskGate gate; // null 表示领取任务不受限制
+
+        // 每台主机只解析一次，解析中为 CompletableFuture，解析失败记为 UNRESOLVED
+        private final AtomicReferenceArray<Object> addresses = new AtomicReferenceArray<>(targets.size());
+        // 本次扫描创建的所有缓冲区，用于中止进行中的探测
+        private final Queue<ProbeBuffers> allBuffers = new ConcurrentLinkedQueue<>();
+        // 工作窃取模式下叶子任务在任意线程上执行，缓冲区按线程复用
+        private final ThreadLocal<ProbeBuffers> threadBuffers = ThreadLocal.withInitial(this::newBuffers);
+
+        ScanRun(Executor tcpExecutor, Executor udpExecutor, boolean workStealing, ScanCallback callback, TaskGate gate) {
+            this.workStealing = workStealing;
+            this.callback = callback;
+            this.gate = gate;
+            if (laneTcpPorts != null) {
+                lanes.add(new Lane(Protocol.TCP, tcpExecutor, getTcpThreads(), 0, laneTcpPorts));
+            }
+            if (laneUdpPorts != null) {
+                lanes.add(new Lane(Protocol.UDP, udpExecutor, getUdpThreads(),
+                        laneTcpPorts != null ? laneTcpPorts.size() : 0, laneUdpPorts));
+            }
+            activeLanes = new AtomicInteger(lanes.size());
+            scanEvent.begin();
+        }
+
+        /**
+         * 同时启动所有流水线
+         */
+        void start() {
+            if (timeBudgetMillis > 0) {
+                // 到时在公共异步线程池中停止扫描，不占用 JVM 共享的延迟调度线程
+                Executor timer = CompletableFuture.delayedExecutor(timeBudgetMillis, TimeUnit.MILLISECONDS);
+                timer.execute(() -> stop(StopReason.TIME_BUDGET));
+            }
+            for (Lane lane : lanes) {
+                lane.start();
+            }
+        }
+
+        private ProbeBuffers newBuffers() {
+            ProbeBuffers buffers = new ProbeBuffers(udpPayloads.getMaxPayloadLength(), stoppedCheck, this::isHostStopped);
+            allBuffers.add(buffers);
+            return buffers;
+        }
+
+        /**
+         * 扫描是否已被取消或满足停止条件
+         */
+        boolean stopped() {
+            return isCancelled || stopReason.get() != null;
+        }
+
+        private boolean isHostStopped(int hostIndex) {
+            return stoppedHosts != null && stoppedHosts.get(hostIndex) != 0;
+        }
+
+        /**
+         * 满足停止条件，停止领取新任务并中止进行中的探测
+         * 不获取 dispatchLock，回调阻塞时时间预算也能生效
+         */
+        void stop(StopReason reason) {
+            if (!future.isDone() && stopReason.compareAndSet(null, reason)) {
+                abortProbes(-1);
+            }
+        }
+
+        /**
+         * 中止指定主机（hostIndex 为 -1 时是所有主机）正在进行的探测
+         */
+        private void abortProbes(int hostIndex) {
+            for (ProbeBuffers buffers : allBuffers) {
+                buffers.abort(hostIndex);
+            }
+        }
+
+        /**
+         * 主机已找到开放端口或扫描已停止，跳过 count 个任务，只推进进度
+         */
+        private void skip(long count) {
+            synchronized (dispatchLock) {
+                scannedPorts += count;
+                skippedTasks += count;
+                if (callback != null) {
+                    callback.onProgress(0, (scannedPorts * 100.0) / progressTotal);
                 }
             }
-            
-            if (protocol == Protocol.UDP || protocol == Protocol.BOTH) {
-                // UDP扫描
-                for (int port = startPort; port <= endPort; port++) {
-                    if (isCancelled) break;
-                    final int currentPort = port;
-                    futures.add(executor.submit(() -> scanUdpPort(host, currentPort)));
+        }
+
+        /**
+         * 解析目标主机并选择地址，失败时只报告一次错误，该主机的任务都按关闭处理
+         * 每台主机只由第一个领取到它的线程解析，双栈竞速以最小的TCP端口进行（只扫描 UDP 时不竞速）；同时到达的其他线程等待结果
+         */
+        @SuppressWarnings("unchecked")
+        private InetAddress resolve(int hostIndex) {
+            Object cached = addresses.get(hostIndex);
+            if (cached == null) {
+                CompletableFuture<Object> pending = new CompletableFuture<>();
+                if (addresses.compareAndSet(hostIndex, null, pending)) {
+                    String target = targets.get(hostIndex);
+                    try {
+                        cached = resolveTarget(target, racePort);
+                    } catch (UnknownHostException | RuntimeException e) {
+                        // 其他线程在等待这次解析，任何失败都要完成 pending
+                        cached = UNRESOLVED;
+                        synchronized (dispatchLock) {
+                            if (callback != null) {
+                                callback.onError("无法解析主机: " + target);
+                            }
+                        }
+                    }
+                    addresses.set(hostIndex, cached);
+                    pending.complete(cached);
+                } else {
+                    cached = addresses.get(hostIndex);
                 }
             }
+            if (cached instanceof CompletableFuture) {
+                cached = ((CompletableFuture<Object>) cached).join();
+            }
+            return cached == UNRESOLVED ? null : (InetAddress) cached;
+        }
+
+        /**
+         * 记录单个任务的结果并回调，只有需要报告的状态才生成结果对象；
+         * 超时（timedOut）的TCP任务在还有重试机会时留到所属流水线的下一轮，其他原因的过滤不重试
+         */
+        private void dispatch(Lane lane, long globalTask, int hostIndex, int port, PortState state, boolean timedOut) {
+            synchronized (dispatchLock) {
+                scannedPorts++;
 
-            // 处理完成的任务
-            int scannedPorts = 0;
-            for (Future<PortResult> future : futures) {
-                if (isCancelled) {
-                    break;
+                // 停止后到达的结果可能来自被中止的探测，不可信；丢弃的任务没有完成扫描，计入跳过
+                if (stopReason.get() != null || isHostStopped(hostIndex)) {
+                    skippedTasks++;
+                    if (callback != null) {
+                        callback.onProgress(0, (scannedPorts * 100.0) / progressTotal);
+                    }
+                    return;
                 }
 
-                try {
-                    PortResult result = future.get(); // 阻塞等待结果
-                    scannedPorts++;
+                boolean retry = state == PortState.FILTERED && timedOut && lane.attempt < retryPolicy.getMaxRetries();
+                if (retry) {
+                    lane.addRetry(globalTask);
+                    progressTotal++;
+                }
+                double progress = (scannedPorts * 100.0) / progressTotal;
 
-                    double progress = (scannedPorts * 100.0) / totalPorts;
+                // 如果端口开放或有结果
+                if (state == PortState.OPEN || state == PortState.OPEN_OR_FILTERED
+                        || (state == PortState.FILTERED && reportFiltered && !retry)) {
+                    PortResult result = new PortResult(targets.get(hostIndex), port, getServiceName(port), lane.laneProtocol, state);
+                    openPorts.add(result);
 
-                    // 如果端口开放或有结果
-                    if (result != null) {
-                        openPorts.add(result);
-                        
-                        // 回调更新进度
-                        if (callback != null) {
-                            callback.onProgress(result.getPort(), progress);
-                            callback.onPortFound(result.getPort(), result.getService()); // 兼容旧版本
-                            callback.onPortFoundDetailed(result); // 新版本，传递完整信息
+                    // 回调更新进度
+                    if (callback != null) {
+                        callback.onProgress(result.getPort(), progress);
+                        callback.onPortFound(result.getPort(), result.getService()); // 兼容旧版本
+                        callback.onPortFoundDetailed(result); // 新版本，传递完整信息
+                    }
+
+                    if (state == PortState.OPEN) {
+                        openFound++;
+                        if (stoppedHosts != null) {
+                            stoppedHosts.set(hostIndex, 1);
+                            abortProbes(hostIndex);
                         }
-                    } else {
-                        // 端口关闭，只更新进度
-                        if (callback != null) {
-                            callback.onProgress(0, progress);
+                        if (maxOpenPorts > 0 && openFound >= maxOpenPorts) {
+                            stop(StopReason.OPEN_LIMIT);
                         }
                     }
-
-                } catch (InterruptedException | ExecutionException e) {
+                } else {
+                    // 端口关闭，只更新进度
                     if (callback != null) {
-                        callback.onError("扫描端口时出错: " + e.getMessage());
+                        callback.onProgress(0, progress);
                     }
                 }
             }
+        }
 
-        } finally {
-            executor.shutdown();
+        /**
+         * 一条流水线结束，最后结束的流水线负责结束本次扫描
+         */
+        private void laneFinished() {
+            if (activeLanes.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            List<PortResult> results;
+            synchronized (dispatchLock) {
+                results = new ArrayList<>(openPorts);
+            }
+
+            // 排序结果：按目标顺序，再按端口
+            Map<String, Integer> hostOrder = new HashMap<>();
+            for (int i = 0; i < targets.size(); i++) {
+                hostOrder.put(targets.get(i), i);
+            }
+            results.sort(Comparator.comparingInt((PortResult r) -> hostOrder.get(r.getHost()))
+                    .thenComparingInt(PortResult::getPort));
+            StopReason reason;
+            synchronized (dispatchLock) {
+                StopReason stoppedBy = stopReason.get();
+                reason = stoppedBy != null ? stoppedBy
+                        : skippedTasks > 0 ? StopReason.FIRST_OPEN_PER_HOST : StopReason.COMPLETED;
+            }
+            commitScanEvent(results.size(), reason);
+
+            if (isCancelled) {
+                future.cancel(false);
+                return;
+            }
+
+            PortScanner.this.stopReason = reason;
             try {
-                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
+                if (callback != null) {
+                    callback.onComplete(results, reason);
                 }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
+                future.complete(results);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
             }
         }
 
-        // 排序结果
-        openPorts.sort(Comparator.comparingInt(PortResult::getPort));
-
-        if (callback != null && !isCancelled) {
-            callback.onComplete(openPorts);
+        private void commitScanEvent(int resultCount, StopReason reason) {
+            scanEvent.end();
+            if (scanEvent.shouldCommit()) {
+                scanEvent.targets = host;
+                scanEvent.hostCount = targets.size();
+                scanEvent.protocol = protocol.getDisplayName();
+                scanEvent.scheduleMode = (workStealing ? ScheduleMode.WORK_STEALING : ScheduleMode.SEQUENTIAL).name();
+                synchronized (dispatchLock) {
+                    scanEvent.probes = scannedPorts;
+                }
+                scanEvent.results = resultCount;
+                scanEvent.cancelled = isCancelled;
+                scanEvent.stopReason = reason.name();
+                scanEvent.commit();
+            }
         }
 
+        /**
+         * 单个协议的扫描流水线
+         * 流水线内的任务编号为 主机序号 * portCount + 端口序号，端口序号是端口在本协议端口集合中的位置，
+         * 换算成全局任务编号时加上 taskOffset。
+         * 扫描分轮进行：第一轮覆盖全部任务，之后每轮只重试上一轮超时的TCP任务
+         */
+        private class Lane {
+            private final Protocol laneProtocol;
+            private final Executor executor;
+            private final int workers;
+            private final int taskOffset; // 本协议在主机内任务编号中的起点
+            private final PortSet ports;
+            private final int portCount;
+            private final long laneTasks;
+            private final AtomicLong nextTask = new AtomicLong();
+            private final AtomicInteger activeWorkers = new AtomicInteger();
+            // 在共享引擎上运行时，工作任务每完成一个探测就让出线程
+            private final boolean yielding;
+
+            // 当前轮次：attempt 为 0 时是第一轮，passTasks 为 null 表示全部任务
+            private int attempt;
+            private long[] passTasks;
+            private long passSize;
+            // 本轮超时、需要下一轮重试的全局任务编号，由 dispatchLock 保护
+            private long[] retryTasks = new long[16];
+            private int retryCount;
+
+            // 每台主机探测耗时的指数加权平均，0 表示尚无样本；按协议分开，UDP 的长超时不影响TCP的划分
+            private final AtomicLongArray latencies = new AtomicLongArray(targets.size());
+            // 工作窃取模式下叶子任务的最大任务数，保证叶子数量足够所有线程分担
+            private int maxLeafTasks = MAX_LEAF_TASKS;
+
+            Lane(Protocol laneProtocol, Executor executor, int workers, int taskOffset, PortSet ports) {
+                this.laneProtocol = laneProtocol;
+                this.executor = executor;
+                this.workers = workers;
+                this.taskOffset = taskOffset;
+                this.ports = ports;
+                this.portCount = ports.size();
+                this.laneTasks = (long) portCount * targets.size();
+                this.passSize = laneTasks;
+                this.yielding = executor instanceof ScanEngine.Session;
+            }
+
+            void start() {
+                if (!workStealing) {
+                    startWorkers();
+                    return;
+                }
+                activeWorkers.set(1);
+                ScanEvents.QueueWaitEvent queued = new ScanEvents.QueueWaitEvent();
+                queued.begin();
+                try {
+                    ((ForkJoinPool) executor).execute(new RootTask(queued));
+                } catch (RejectedExecutionException e) {
+                    future.completeExceptionally(e);
+                    workerExited();
+                }
+            }
+
+            /**
+             * 向执行器提交本轮的工作线程
+             */
+            void startWorkers() {
+                activeWorkers.set(workers);
+                for (int i = 0; i < workers; i++) {
+                    ScanEvents.QueueWaitEvent queued = new ScanEvents.QueueWaitEvent();
+                    queued.begin();
+                    try {
+                        executor.execute(() -> work(queued));
+                    } catch (RejectedExecutionException e) {
+                        future.completeExceptionally(e);
+                        // 未能提交的工作线程直接视为已退出
+                        for (int j = i; j < workers; j++) {
+                            workerExited();
+                        }
+                        return;
+                    }
+                }
+            }
+
+            /**
+             * 工作线程主循环：领取下一个任务，直到全部完成或扫描被取消
+             */
+            void work(ScanEvents.QueueWaitEvent queued) {
+                commitQueueWait(queued);
+                ProbeBuffers buffers = newBuffers();
+                if (yielding) {
+                    workSlice(buffers);
+                    return;
+                }
+                try {
+                    runTasks(buffers);
+                } finally {
+                    workerExited();
+                }
+            }
+
+            /**
+             * 共享引擎上的工作任务：执行一个探测后把自己重新提交到会话队尾，让引擎轮到其他扫描，
+             * 领不到任务或无法重新提交时工作线程退出
+             */
+            private void workSlice(ProbeBuffers buffers) {
+                boolean resubmitted = false;
+                try {
+                    long task = claimTask();
+                    if (task >= 0) {
+                        runTask(task, buffers);
+                        executor.execute(() -> workSlice(buffers));
+                        resubmitted = true;
+                    }
+                } catch (RejectedExecutionException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    if (!resubmitted) {
+                        workerExited();
+                    }
+                }
+            }
+
+            /**
+             * 工作任务开始运行时记录它在执行器中排队的时间
+             */
+            private void commitQueueWait(ScanEvents.QueueWaitEvent queued) {
+                queued.end();
+                if (queued.shouldCommit()) {
+                    queued.protocol = laneProtocol.getDisplayName();
+                    queued.attempt = attempt;
+                    queued.commit();
+                }
+            }
+
+            private void runTasks(ProbeBuffers buffers) {
+                long task;
+                while ((task = claimTask()) >= 0) {
+                    runTask(task, buffers);
+                }
+            }
+
+            /**
+             * 领取本轮的下一个任务，返回全局任务编号；本轮已领完或扫描已停止时返回 -1
+             * 设置了任务许可时先等待许可，订阅者跟不上时工作线程停在这里，而不是在持有 dispatchLock 时阻塞
+             */
+            private long claimTask() {
+                long index;
+                if (stopped() || !permitted() || (index = nextTask.getAndIncrement()) >= passSize) {
+                    return -1;
+                }
+                return passTasks == null ? toGlobalTask(index) : passTasks[(int) index];
+            }
+
+            private boolean permitted() {
+                return gate == null || gate.awaitPermit(stoppedCheck);
+            }
+
+            private long toGlobalTask(long laneTask) {
+                long hostIndex = laneTask / portCount;
+                return hostIndex * tasksPerHost + taskOffset + laneTask % portCount;
+            }
+
+            /**
+             * 执行单个探测任务
+             */
+            private void runTask(long globalTask, ProbeBuffers buffers) {
+                int hostIndex = (int) (globalTask / tasksPerHost);
+                int port = ports.portAt((int) (globalTask % tasksPerHost) - taskOffset);
+                if (isHostStopped(hostIndex)) {
+                    skip(1);
+                    return;
+                }
+
+                try {
+                    InetAddress target = resolve(hostIndex);
+                    if (target == null) {
+                        dispatch(this, globalTask, hostIndex, port, PortState.CLOSED, false);
+                        return;
+                    }
+                    // 解析（双栈竞速）可能持续一个超时，期间满足的停止条件看不到这个线程，在这里补上
+                    if (stopped() || isHostStopped(hostIndex)) {
+                        skip(1);
+                        return;
+                    }
+
+                    ScanEvents.ProbeEvent event = new ScanEvents.ProbeEvent();
+                    long start = System.nanoTime();
+                    event.begin();
+                    buffers.hostIndex = hostIndex;
+                    PortState state = laneProtocol == Protocol.TCP
+                            ? probeTcpPort(target, port, retryPolicy.timeoutFor(attempt, tcpTimeout), buffers)
+                            : probeUdpPort(target, port, udpTimeout, buffers);
+                    event.end();
+                    recordLatency(hostIndex, System.nanoTime() - start);
+                    if (event.shouldCommit()) {
+                        event.target = targets.get(hostIndex);
+                        event.address = target.getHostAddress();
+                        event.port = port;
+                        event.protocol = laneProtocol.getDisplayName();
+                        event.outcome = state.name();
+                        event.attempt = attempt;
+                        event.commit();
+                    }
+                    dispatch(this, globalTask, hostIndex, port, state,
+                            laneProtocol == Protocol.TCP && buffers.timedOut);
+                } catch (RuntimeException e) {
+                    synchronized (dispatchLock) {
+                        if (callback != null) {
+                            callback.onError("扫描端口时出错: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+
+            private void recordLatency(int hostIndex, long nanos) {
+                long old = latencies.get(hostIndex);
+                // 并发更新时丢失个别样本无关紧要
+                latencies.set(hostIndex, old == 0 ? nanos : old + (nanos - old) / 8);
+            }
+
+            private long latencyOf(int hostIndex) {
+                long latency = latencies.get(hostIndex);
+                return latency == 0 ? DEFAULT_LATENCY_NANOS : latency;
+            }
+
+            /**
+             * 记录需要下一轮重试的任务，调用方持有 dispatchLock
+             */
+            private void addRetry(long globalTask) {
+                if (retryCount == retryTasks.length) {
+                    retryTasks = Arrays.copyOf(retryTasks, retryCount * 2);
+                }
+                retryTasks[retryCount++] = globalTask;
+            }
+
+            /**
+             * 工作线程退出，最后一个退出的线程负责开始下一轮重试或结束本流水线
+             */
+            void workerExited() {
+                if (activeWorkers.decrementAndGet() == 0) {
+                    if (!startRetryPass()) {
+                        laneFinished();
+                    }
+                }
+            }
+
+            /**
+             * 有超时任务需要重试时，退避等待后以更长的超时时间开始下一轮
+             */
+            private boolean startRetryPass() {
+                synchronized (dispatchLock) {
+                    if (stopped() || future.isDone() || retryCount == 0) {
+                        return false;
+                    }
+                    attempt++;
+                    passTasks = Arrays.copyOf(retryTasks, retryCount);
+                    passSize = retryCount;
+                    retryTasks = new long[16];
+                    retryCount = 0;
+                    nextTask.set(0);
+                }
+
+                // 退避结束后在公共异步线程池中提交工作线程；不能在 JVM 共享的延迟调度线程上直接运行，
+                // executor.execute 阻塞时会拖住进程内所有的延迟任务和 orTimeout
+                long backoff = retryPolicy.backoffBefore(attempt);
+                Executor delayed = CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS);
+                delayed.execute(this::startWorkers);
+                return true;
+            }
+
+            /**
+             * 工作窃取模式的根任务，全部划分任务结束后结束本流水线的第一轮
+             */
+            private class RootTask extends RecursiveAction {
+                private final ScanEvents.QueueWaitEvent queued;
+
+                RootTask(ScanEvents.QueueWaitEvent queued) {
+                    this.queued = queued;
+                }
+
+                @Override
+                protected void compute() {
+                    commitQueueWait(queued);
+                    try {
+                        long leaves = (long) getPool().getParallelism() * 4;
+                        maxLeafTasks = (int) Math.max(1, Math.min(MAX_LEAF_TASKS, laneTasks / leaves));
+                        new PartitionTask(0, targets.size(), taskOffset, taskOffset + portCount).invoke();
+                    } finally {
+                        workerExited();
+                    }
+                }
+            }
+
+            /**
+             * 一个 主机范围 × 主机内任务范围 的工作单元
+             * 按估算耗时（主机延迟 × 任务数）递归二分，慢主机被切得更细，空闲线程可以窃取
+             */
+            private class PartitionTask extends RecursiveAction {
+                private final int hostFrom;
+                private final int hostTo;
+                private final int taskFrom;
+                private final int taskTo;
+
+                PartitionTask(int hostFrom, int hostTo, int taskFrom, int taskTo) {
+                    this.hostFrom = hostFrom;
+                    this.hostTo = hostTo;
+                    this.taskFrom = taskFrom;
+                    this.taskTo = taskTo;
+                }
+
+                @Override
+                protected void compute() {
+                    if (stopped()) {
+                        return;
+                    }
+
+                    if (hostTo - hostFrom > 1) {
+                        // 按主机延迟加权找到耗时的中点，拆分主机范围
+                        long total = 0;
+                        for (int i = hostFrom; i < hostTo; i++) {
+                            total += latencyOf(i);
+                        }
+                        long half = 0;
+                        int split = hostFrom + 1;
+                        for (int i = hostFrom; i < hostTo - 1; i++) {
+                            half += latencyOf(i);
+                            split = i + 1;
+                            if (half * 2 >= total) {
+                                break;
+                            }
+                        }
+                        invokeAll(new PartitionTask(hostFrom, split, taskFrom, taskTo),
+                                new PartitionTask(split, hostTo, taskFrom, taskTo));
+                        return;
+                    }
+
+                    int leafSize = (int) Math.max(1, Math.min(maxLeafTasks, LEAF_TARGET_NANOS / latencyOf(hostFrom)));
+                    if (taskTo - taskFrom > leafSize) {
+                        int middle = (taskFrom + taskTo) >>> 1;
+                        invokeAll(new PartitionTask(hostFrom, hostTo, taskFrom, middle),
+                                new PartitionTask(hostFrom, hostTo, middle, taskTo));
+                        return;
+                    }
+
+                    if (isHostStopped(hostFrom)) {
+                        skip(taskTo - taskFrom);
+                        return;
+                    }
+                    ProbeBuffers buffers = threadBuffers.get();
+                    long base = (long) hostFrom * tasksPerHost;
+                    for (int task = taskFrom; task < taskTo && !stopped() && permitted(); task++) {
+                        runTask(base + task, buffers);
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -383,7 +1536,7 @@ public class PortScanner {
     public static void saveToFile(List<PortResult> openPorts, String filename) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename, true))) {
             for (PortResult result : openPorts) {
-                writer.write("端口 " + result.getPort() + " 已打开 - " + result.getService());
+                writer.write(hostPrefix(result) + "端口 " + result.getPort() + " 已打开 - " + result.getService());
                 writer.newLine();
             }
         } catch (IOException e) {
@@ -391,6 +1544,10 @@ public class PortScanner {
         }
     }
 
+    private static String hostPrefix(PortResult result) {
+        return result.getHost() == null ? "" : result.getHost() + " ";
+    }
+
     /**
      * 显示扫描结果
      */
@@ -404,9 +1561,9 @@ public class PortScanner {
         System.out.println("-".repeat(50));
         for (PortResult result : openPorts) {
             if ("未知".equals(result.getService())) {
-                System.out.println("端口 " + result.getPort() + ": 未知（此端口可能用于自定义或不常见的服务，建议进一步调查。）");
+                System.out.println(hostPrefix(result) + "端口 " + result.getPort() + ": 未知（此端口可能用于自定义或不常见的服务，建议进一步调查。）");
             } else {
-                System.out.println("端口 " + result.getPort() + ": " + result.getService());
+                System.out.println(hostPrefix(result) + "端口 " + result.getPort() + ": " + result.getService());
             }
         }
         System.out.println("-".repeat(50));
@@ -417,15 +1574,31 @@ public class PortScanner {
      */
     public static void main(String[] args) {
         if (args.length < 1) {
-            System.out.println("用法: java PortScanner <主机地址> [-s 起始端口] [-e 结束端口] [-t 线程数]");
+            System.out.println("用法: java PortScanner <主机地址> [-s 起始端口] [-e 结束端口] [-p TCP端口集合] [-u UDP端口集合] [-t 线程数] [-m seq|steal]");
+            System.out.println("      [-r 重试次数] [-b 源地址] [-c normal|rst] [--budget 毫秒] [--max-open 数量] [--first-open yes]");
+            System.out.println("      [--udp-payloads 探测数据库文件]");
+            System.out.println("主机地址可以是逗号分隔的多个主机、IPv6 地址或网段，如 192.168.1.0/24、fd00::/120");
+            System.out.println("端口集合由端口、范围、命名集合（" + String.join("、", PortSet.namedSets()) + "）组成，! 表示排除，如 top100,8000-8100,!8080");
             System.out.println("示例: java PortScanner www.163.com -s 1 -e 1024 -t 10");
+            System.out.println("      java PortScanner 192.168.1.0/24 -p db-ports,22 -u 53,123,161 -t 50");
             return;
         }
 
         String host = args[0];
         int startPort = 1;
         int endPort = 1024;
+        boolean rangeGiven = false;
+        String tcpSpec = null;
+        String udpSpec = null;
         int maxThreads = 10;
+        ScheduleMode scheduleMode = ScheduleMode.SEQUENTIAL;
+        int retries = 0;
+        String bind = null;
+        boolean abortiveClose = false;
+        long timeBudget = 0;
+        int maxOpen = 0;
+        boolean firstOpen = false;
+        String payloadFile = null;
 
         // 简单的参数解析
         for (int i = 1; i < args.length; i += 2) {
@@ -434,22 +1607,98 @@ public class PortScanner {
                     case "-s":
                     case "--start-port":
                         startPort = Integer.parseInt(args[i + 1]);
+                        rangeGiven = true;
                         break;
                     case "-e":
                     case "--end-port":
                         endPort = Integer.parseInt(args[i + 1]);
+                        rangeGiven = true;
+                        break;
+                    case "-p":
+                    case "--ports":
+                        tcpSpec = args[i + 1];
+                        break;
+                    case "-u":
+                    case "--udp-ports":
+                        udpSpec = args[i + 1];
                         break;
                     case "-t":
                     case "--threads":
                         maxThreads = Integer.parseInt(args[i + 1]);
                         break;
+                    case "-m":
+                    case "--mode":
+                        scheduleMode = "steal".equals(args[i + 1]) ? ScheduleMode.WORK_STEALING : ScheduleMode.SEQUENTIAL;
+                        break;
+                    case "-r":
+                    case "--retries":
+                        retries = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-b":
+                    case "--bind":
+                        bind = args[i + 1];
+                        break;
+                    case "-c":
+                    case "--close":
+                        abortiveClose = "rst".equals(args[i + 1]);
+                        break;
+                    case "--budget":
+                        timeBudget = Long.parseLong(args[i + 1]);
+                        break;
+                    case "--max-open":
+                        maxOpen = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--first-open":
+                        firstOpen = "yes".equals(args[i + 1]);
+                        break;
+                    case "--udp-payloads":
+                        payloadFile = args[i + 1];
+                        break;
                 }
             }
         }
 
-        System.out.println("正在扫描 " + host + " 的端口范围 " + startPort + " 到 " + endPort + "，使用 " + maxThreads + " 个线程...");
-
-        PortScanner scanner = new PortScanner(host, startPort, endPort, maxThreads);
+        PortScanner scanner;
+        try {
+            // 只给出 UDP 端口集合时只扫描 UDP，否则 TCP 使用 -p 或 -s/-e 指定的端口
+            boolean tcp = udpSpec == null || tcpSpec != null || rangeGiven;
+            PortSet tcpPorts = tcpSpec != null ? PortSet.parse(tcpSpec) : PortSet.range(startPort, endPort);
+            scanner = new PortScanner(host, tcpPorts, maxThreads);
+            if (payloadFile != null) {
+                scanner.setUdpPayloads(UdpPayloadDatabase.load(Path.of(payloadFile)));
+            }
+            if (udpSpec != null) {
+                PortSet udpPorts = PortSet.parse(udpSpec);
+                scanner.setUdpPorts(udpPorts);
+                scanner.setProtocol(tcp ? Protocol.BOTH : Protocol.UDP);
+            }
+            if (tcp) {
+                System.out.println("TCP 端口: " + tcpPorts + "（" + tcpPorts.size() + " 个）");
+            }
+            if (udpSpec != null) {
+                System.out.println("UDP 端口: " + scanner.getUdpPorts() + "（" + scanner.getUdpPorts().size() + " 个）");
+            }
+            System.out.println("正在扫描 " + host + "，使用 " + maxThreads + " 个线程...");
+            if (bind != null) {
+                SourceBinding sourceBinding = SourceBinding.parse(bind);
+                scanner.setSourceBinding(sourceBinding);
+                scanner.setPortMonitor(new EphemeralPortMonitor(sourceBinding.getCapacity()));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误: " + e.getMessage());
+            return;
+        } catch (IOException e) {
+            System.err.println("加载UDP探测数据库失败: " + e.getMessage());
+            return;
+        }
+        scanner.setScheduleMode(scheduleMode);
+        scanner.setAbortiveClose(abortiveClose);
+        scanner.setTimeBudget(timeBudget);
+        scanner.setMaxOpenPorts(maxOpen);
+        scanner.setStopAtFirstOpenPerHost(firstOpen);
+        if (retries > 0) {
+            scanner.setRetryPolicy(new RetryPolicy(retries, 2.0, 200));
+        }
         scanner.setCallback(new ScanCallback() {
             @Override
             public void onProgress(int currentPort, double percentage) {
@@ -463,8 +1712,9 @@ public class PortScanner {
 
             @Override
             public void onPortFoundDetailed(PortResult result) {
-                System.out.printf("\n端口 %d (%s) %s - %s\n", 
-                    result.getPort(), 
+                System.out.printf("\n%s 端口 %d (%s) %s - %s\n",
+                    result.getHost(),
+                    result.getPort(),
                     result.getProtocol().getDisplayName(),
                     result.getState(),
                     result.getService());
@@ -472,7 +1722,16 @@ public class PortScanner {
 
             @Override
             public void onComplete(List<PortResult> openPorts) {
-                System.out.println("\n扫描完成。");
+                onComplete(openPorts, StopReason.COMPLETED);
+            }
+
+            @Override
+            public void onComplete(List<PortResult> openPorts, StopReason stopReason) {
+                if (stopReason.isPartial()) {
+                    System.out.println("\n扫描提前结束（" + stopReason + "），结果不完整。");
+                } else {
+                    System.out.println("\n扫描完成。");
+                }
                 displayResults(openPorts);
                 saveToFile(openPorts, "port_scan_results.txt");
                 System.out.println("结果已保存到 port_scan_results.txt");
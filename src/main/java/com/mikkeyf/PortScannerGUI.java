@@ -6,26 +6,29 @@ import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 /**
  * @Author: Mikkeyf
  * @CreateTime: 2025/10/4 15:50
  */
 public class PortScannerGUI extends JFrame {
 
+    // 所有扫描共用的引擎线程数，即界面上同时进行的探测总数上限
+    private static final int ENGINE_CONCURRENCY = 200;
+
     // GUI 组件
     private JTextField hostField;
     private JTextField startPortField;
     private JTextField endPortField;
     private JTextField threadsField;
     private JComboBox<PortScanner.Protocol> protocolComboBox;
-    private JButton scanButton;
-    private JButton cancelButton;
-    private JProgressBar progressBar;
-    private JLabel statusLabel;
-    private JTextArea logArea;
-    private DefaultTableModel tableModel;
+    private JTabbedPane scanTabs;
+    private JLabel engineLabel;
 
-    private PortScanner currentScanner;
+    // 所有标签页的扫描共享同一个引擎，不再各自创建线程池
+    private final ScanEngine scanEngine = new ScanEngine(ENGINE_CONCURRENCY);
+    private int runningScans;
 
     public PortScannerGUI() {
         initializeUI();
@@ -47,8 +50,9 @@ public class PortScannerGUI extends JFrame {
         // 顶部输入面板
         mainPanel.add(createInputPanel(), BorderLayout.NORTH);
 
-        // 中间分割面板（日志和结果表格）
-        mainPanel.add(createCenterPanel(), BorderLayout.CENTER);
+        // 中间标签页，每次扫描一个标签页
+        scanTabs = new JTabbedPane();
+        mainPanel.add(scanTabs, BorderLayout.CENTER);
 
         // 底部状态面板
         mainPanel.add(createStatusPanel(), BorderLayout.SOUTH);
@@ -79,6 +83,7 @@ public class PortScannerGUI extends JFrame {
         panel.add(new JLabel("目标主机:"), gbc);
         gbc.gridx = 1; gbc.weightx = 1.0;
         hostField = new JTextField("127.0.0.1", 20);
+        hostField.setToolTipText("多个主机用逗号分隔，支持 IPv6 地址和网段，如 192.168.1.0/24、fd00::/120");
         panel.add(hostField, gbc);
 
         // 起始端口
@@ -100,6 +105,7 @@ public class PortScannerGUI extends JFrame {
         panel.add(new JLabel("线程数:"), gbc);
         gbc.gridx = 3; gbc.weightx = 0.3;
         threadsField = new JTextField("10", 8);
+        threadsField.setToolTipText("本次扫描最多同时进行的探测数，所有扫描合计不超过 " + ENGINE_CONCURRENCY);
         panel.add(threadsField, gbc);
 
         // 协议类型
@@ -124,92 +130,12 @@ public class PortScannerGUI extends JFrame {
     private JPanel createButtonPanel() {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
 
-        // 开始扫描按钮
-        scanButton = new JButton("开始扫描");
+        // 开始扫描按钮，每次点击在新标签页中开始一次扫描
+        JButton scanButton = new JButton("开始扫描");
         scanButton.setIcon(UIManager.getIcon("FileView.computerIcon"));
         scanButton.addActionListener(e -> startScan());
         panel.add(scanButton);
 
-        // 取消按钮
-        cancelButton = new JButton("取消扫描");
-        cancelButton.setEnabled(false);
-        cancelButton.addActionListener(e -> cancelScan());
-        panel.add(cancelButton);
-
-        // 清空结果按钮
-        JButton clearButton = new JButton("清空结果");
-        clearButton.addActionListener(e -> clearResults());
-        panel.add(clearButton);
-
-        // 保存结果按钮
-        JButton saveButton = new JButton("保存结果");
-        saveButton.addActionListener(e -> saveResults());
-        panel.add(saveButton);
-
-        return panel;
-    }
-
-    /**
-     * 创建中间面板（分割日志和结果表格）
-     */
-    private JPanel createCenterPanel() {
-        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
-        splitPane.setResizeWeight(0.5);
-
-        // 日志面板
-        splitPane.setTopComponent(createLogPanel());
-
-        // 结果表格面板
-        splitPane.setBottomComponent(createResultPanel());
-
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.add(splitPane, BorderLayout.CENTER);
-        return panel;
-    }
-
-    /**
-     * 创建日志面板
-     */
-    private JPanel createLogPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBorder(BorderFactory.createTitledBorder("扫描日志"));
-
-        logArea = new JTextArea();
-        logArea.setEditable(false);
-        logArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-
-        JScrollPane scrollPane = new JScrollPane(logArea);
-        panel.add(scrollPane, BorderLayout.CENTER);
-
-        return panel;
-    }
-
-    /**
-     * 创建结果表格面板
-     */
-    private JPanel createResultPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBorder(BorderFactory.createTitledBorder("扫描结果"));
-
-        // 创建表格
-        String[] columnNames = {"端口号", "协议", "服务名称", "状态"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // 禁止编辑
-            }
-        };
-
-        JTable resultTable = new JTable(tableModel);
-        resultTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        resultTable.getColumnModel().getColumn(0).setPreferredWidth(80);
-        resultTable.getColumnModel().getColumn(1).setPreferredWidth(60);
-        resultTable.getColumnModel().getColumn(2).setPreferredWidth(250);
-        resultTable.getColumnModel().getColumn(3).setPreferredWidth(100);
-
-        JScrollPane scrollPane = new JScrollPane(resultTable);
-        panel.add(scrollPane, BorderLayout.CENTER);
-
         return panel;
     }
 
@@ -219,15 +145,10 @@ public class PortScannerGUI extends JFrame {
     private JPanel createStatusPanel() {
         JPanel panel = new JPanel(new BorderLayout(5, 5));
 
-        // 进度条
-        progressBar = new JProgressBar(0, 100);
-        progressBar.setStringPainted(true);
-        panel.add(progressBar, BorderLayout.CENTER);
-
-        // 状态标签
-        statusLabel = new JLabel("就绪");
-        statusLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 0));
-        panel.add(statusLabel, BorderLayout.SOUTH);
+        engineLabel = new JLabel();
+        engineLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 0));
+        panel.add(engineLabel, BorderLayout.CENTER);
+        updateEngineLabel();
 
         return panel;
     }
@@ -263,232 +184,386 @@ public class PortScannerGUI extends JFrame {
             return;
         }
 
-        // 清空之前的结果
-        logArea.setText("");
-        tableModel.setRowCount(0);
-        progressBar.setValue(0);
+        // 创建扫描器（同时校验目标格式）
+        PortScanner scanner;
+        try {
+            scanner = new PortScanner(host, startPort, endPort, threads);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "目标主机格式错误: " + e.getMessage(), "输入错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        PortScanner.Protocol protocol = (PortScanner.Protocol) protocolComboBox.getSelectedItem();
+        scanner.setProtocol(protocol);
 
-        // 禁用输入和扫描按钮
-        setInputEnabled(false);
-        scanButton.setEnabled(false);
-        cancelButton.setEnabled(true);
+        ScanTab tab = new ScanTab(scanner, host);
+        scanTabs.addTab(host, tab);
+        scanTabs.setSelectedComponent(tab);
+        tab.start(startPort, endPort, threads, protocol);
+    }
 
-        // 获取协议选择
-        PortScanner.Protocol protocol = (PortScanner.Protocol) protocolComboBox.getSelectedItem();
+    /**
+     * 运行中的扫描数变化时更新底部状态
+     */
+    private void updateEngineLabel() {
+        engineLabel.setText(String.format("运行中的扫描: %d    全局并发上限: %d", runningScans, scanEngine.getMaxConcurrency()));
+    }
 
-        // 记录开始时间
-        String startTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-        appendLog("========================================");
-        appendLog("扫描开始时间: " + startTime);
-        appendLog("目标主机: " + host);
-        appendLog("端口范围: " + startPort + " - " + endPort);
-        if (protocol != null) {
-            appendLog("扫描协议: " + protocol.getDisplayName());
+    /**
+     * 单次扫描的标签页，有自己的日志、结果表格、进度条和操作按钮
+     * 扫描回调在引擎线程上执行，界面更新通过 invokeLater 交给 EDT
+     */
+    private class ScanTab extends JPanel implements PortScanner.ScanCallback {
+        private final PortScanner scanner;
+        private final String host;
+        private final JProgressBar progressBar = new JProgressBar(0, 100);
+        private final JLabel statusLabel = new JLabel("就绪");
+        private final JTextArea logArea = new JTextArea();
+        private final JButton cancelButton = new JButton("取消扫描");
+        private DefaultTableModel tableModel;
+        private boolean running; // 只在 EDT 上访问
+
+        ScanTab(PortScanner scanner, String host) {
+            super(new BorderLayout(5, 5));
+            this.scanner = scanner;
+            this.host = host;
+
+            add(createTabButtonPanel(), BorderLayout.NORTH);
+            add(createCenterPanel(), BorderLayout.CENTER);
+            add(createTabStatusPanel(), BorderLayout.SOUTH);
         }
-        appendLog("线程数: " + threads);
-        if (protocol == PortScanner.Protocol.UDP || protocol == PortScanner.Protocol.BOTH) {
-            appendLog("注意：UDP扫描结果不可靠，仅供参考");
+
+        /**
+         * 创建标签页的按钮面板
+         */
+        private JPanel createTabButtonPanel() {
+            JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+
+            // 取消按钮
+            cancelButton.setEnabled(false);
+            cancelButton.addActionListener(e -> cancelScan());
+            panel.add(cancelButton);
+
+            // 清空结果按钮
+            JButton clearButton = new JButton("清空结果");
+            clearButton.addActionListener(e -> clearResults());
+            panel.add(clearButton);
+
+            // 保存结果按钮
+            JButton saveButton = new JButton("保存结果");
+            saveButton.addActionListener(e -> saveResults());
+            panel.add(saveButton);
+
+            // 关闭标签页按钮，扫描未结束时先取消
+            JButton closeButton = new JButton("关闭");
+            closeButton.addActionListener(e -> closeTab());
+            panel.add(closeButton);
+
+            return panel;
         }
-        appendLog("========================================\n");
-
-        // 创建扫描器
-        currentScanner = new PortScanner(host, startPort, endPort, threads);
-        currentScanner.setProtocol(protocol);
-        currentScanner.setCallback(new PortScanner.ScanCallback() {
-            @Override
-            public void onProgress(int currentPort, double percentage) {
-                SwingUtilities.invokeLater(() -> {
-                    progressBar.setValue((int) percentage);
-                    statusLabel.setText(String.format("正在扫描端口 %d... 进度: %.2f%%", currentPort, percentage));
-                });
-            }
 
-            @Override
-            public void onPortFound(int port, String service) {
-                // 保留兼容性，实际使用onPortFoundDetailed
-            }
+        /**
+         * 创建中间面板（分割日志和结果表格）
+         */
+        private JPanel createCenterPanel() {
+            JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
+            splitPane.setResizeWeight(0.5);
 
-            @Override
-            public void onPortFoundDetailed(PortScanner.PortResult result) {
-                SwingUtilities.invokeLater(() -> {
-                    String logMessage = String.format("✓ 端口 %d (%s) %s - %s", 
-                        result.getPort(), 
-                        result.getProtocol().getDisplayName(),
-                        result.getState(),
-                        result.getService());
-                    appendLog(logMessage);
-                    
-                    tableModel.addRow(new Object[]{
-                        result.getPort(), 
-                        result.getProtocol().getDisplayName(),
-                        result.getService(), 
-                        result.getState()
-                    });
-                });
-            }
+            // 日志面板
+            splitPane.setTopComponent(createLogPanel());
 
-            @Override
-            public void onComplete(List<PortScanner.PortResult> openPorts) {
-                SwingUtilities.invokeLater(() -> {
-                    String endTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-                    appendLog("\n========================================");
-                    appendLog("扫描完成时间: " + endTime);
-                    appendLog("共发现 " + openPorts.size() + " 个开放端口");
-                    appendLog("========================================");
-
-                    statusLabel.setText("扫描完成！共发现 " + openPorts.size() + " 个开放端口");
-                    progressBar.setValue(100);
-
-                    // 恢复按钮状态
-                    setInputEnabled(true);
-                    scanButton.setEnabled(true);
-                    cancelButton.setEnabled(false);
-
-                    if (!openPorts.isEmpty()) {
-                        int result = JOptionPane.showConfirmDialog(
-                                PortScannerGUI.this,
-                                "扫描完成！是否保存结果到文件？",
-                                "扫描完成",
-                                JOptionPane.YES_NO_OPTION,
-                                JOptionPane.INFORMATION_MESSAGE
-                        );
-                        if (result == JOptionPane.YES_OPTION) {
-                            saveResults();
-                        }
-                    }
-                });
-            }
+            // 结果表格面板
+            splitPane.setBottomComponent(createResultPanel());
 
-            @Override
-            public void onError(String error) {
-                SwingUtilities.invokeLater(() -> {
-                    appendLog("错误: " + error);
-                    JOptionPane.showMessageDialog(PortScannerGUI.this, error, "扫描错误", JOptionPane.ERROR_MESSAGE);
-                });
+            JPanel panel = new JPanel(new BorderLayout());
+            panel.add(splitPane, BorderLayout.CENTER);
+            return panel;
+        }
+
+        /**
+         * 创建日志面板
+         */
+        private JPanel createLogPanel() {
+            JPanel panel = new JPanel(new BorderLayout());
+            panel.setBorder(BorderFactory.createTitledBorder("扫描日志"));
+
+            logArea.setEditable(false);
+            logArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+
+            JScrollPane scrollPane = new JScrollPane(logArea);
+            panel.add(scrollPane, BorderLayout.CENTER);
+
+            return panel;
+        }
+
+        /**
+         * 创建结果表格面板
+         */
+        private JPanel createResultPanel() {
+            JPanel panel = new JPanel(new BorderLayout());
+            panel.setBorder(BorderFactory.createTitledBorder("扫描结果"));
+
+            // 创建表格
+            String[] columnNames = {"主机", "端口号", "协议", "服务名称", "状态"};
+            tableModel = new DefaultTableModel(columnNames, 0) {
+                @Override
+                public boolean isCellEditable(int row, int column) {
+                    return false; // 禁止编辑
+                }
+            };
+
+            JTable resultTable = new JTable(tableModel);
+            resultTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            resultTable.getColumnModel().getColumn(0).setPreferredWidth(120);
+            resultTable.getColumnModel().getColumn(1).setPreferredWidth(80);
+            resultTable.getColumnModel().getColumn(2).setPreferredWidth(60);
+            resultTable.getColumnModel().getColumn(3).setPreferredWidth(250);
+            resultTable.getColumnModel().getColumn(4).setPreferredWidth(100);
+
+            JScrollPane scrollPane = new JScrollPane(resultTable);
+            panel.add(scrollPane, BorderLayout.CENTER);
+
+            return panel;
+        }
+
+        /**
+         * 创建标签页的状态面板
+         */
+        private JPanel createTabStatusPanel() {
+            JPanel panel = new JPanel(new BorderLayout(5, 5));
+
+            // 进度条
+            progressBar.setStringPainted(true);
+            panel.add(progressBar, BorderLayout.CENTER);
+
+            // 状态标签
+            statusLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 0));
+            panel.add(statusLabel, BorderLayout.SOUTH);
+
+            return panel;
+        }
+
+        /**
+         * 在共享引擎上开始扫描
+         */
+        void start(int startPort, int endPort, int threads, PortScanner.Protocol protocol) {
+            // 记录开始时间
+            String startTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+            appendLog("========================================");
+            appendLog("扫描开始时间: " + startTime);
+            appendLog("目标主机: " + host);
+            appendLog("端口范围: " + startPort + " - " + endPort);
+            if (protocol != null) {
+                appendLog("扫描协议: " + protocol.getDisplayName());
             }
-        });
+            appendLog("线程数: " + threads);
+            if (protocol == PortScanner.Protocol.UDP || protocol == PortScanner.Protocol.BOTH) {
+                appendLog("注意：UDP扫描结果不可靠，仅供参考");
+            }
+            appendLog("========================================\n");
+
+            setRunning(true);
+            scanner.setCallback(this);
 
-        // 在新线程中执行扫描
-        Thread scanThread = new Thread(() -> {
-            try {
-                currentScanner.scanPorts();
-            } catch (Exception e) {
+            // 异步执行扫描，异常时恢复界面状态
+            scanEngine.submit(scanner).whenComplete((openPorts, e) -> {
+                if (e == null || e instanceof CancellationException) {
+                    return;
+                }
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
                 SwingUtilities.invokeLater(() -> {
-                    appendLog("扫描异常: " + e.getMessage());
+                    appendLog("扫描异常: " + cause.getMessage());
                     JOptionPane.showMessageDialog(PortScannerGUI.this,
-                            "扫描过程中发生异常: " + e.getMessage(),
+                            "扫描过程中发生异常: " + cause.getMessage(),
                             "异常",
                             JOptionPane.ERROR_MESSAGE);
 
-                    setInputEnabled(true);
-                    scanButton.setEnabled(true);
-                    cancelButton.setEnabled(false);
+                    setRunning(false);
                 });
-            }
-        });
-        scanThread.start();
-    }
+            });
+        }
 
-    /**
-     * 取消扫描
-     */
-    private void cancelScan() {
-        if (currentScanner != null) {
-            currentScanner.cancel();
-            appendLog("\n用户取消了扫描操作");
-            statusLabel.setText("扫描已取消");
-
-            setInputEnabled(true);
-            scanButton.setEnabled(true);
-            cancelButton.setEnabled(false);
+        @Override
+        public void onProgress(int currentPort, double percentage) {
+            SwingUtilities.invokeLater(() -> {
+                progressBar.setValue((int) percentage);
+                statusLabel.setText(String.format("正在扫描端口 %d... 进度: %.2f%%", currentPort, percentage));
+            });
         }
-    }
 
-    /**
-     * 清空结果
-     */
-    private void clearResults() {
-        int result = JOptionPane.showConfirmDialog(
-                this,
-                "确定要清空所有结果吗？",
-                "确认清空",
-                JOptionPane.YES_NO_OPTION,
-                JOptionPane.QUESTION_MESSAGE
-        );
-
-        if (result == JOptionPane.YES_OPTION) {
-            logArea.setText("");
-            tableModel.setRowCount(0);
-            progressBar.setValue(0);
-            statusLabel.setText("就绪");
+        @Override
+        public void onPortFound(int port, String service) {
+            // 保留兼容性，实际使用onPortFoundDetailed
         }
-    }
 
-    /**
-     * 保存结果
-     */
-    private void saveResults() {
-        if (tableModel.getRowCount() == 0) {
-            JOptionPane.showMessageDialog(this, "没有可保存的结果！", "提示", JOptionPane.INFORMATION_MESSAGE);
-            return;
+        @Override
+        public void onPortFoundDetailed(PortScanner.PortResult result) {
+            SwingUtilities.invokeLater(() -> {
+                String logMessage = String.format("✓ %s 端口 %d (%s) %s - %s",
+                    result.getHost(),
+                    result.getPort(),
+                    result.getProtocol().getDisplayName(),
+                    result.getState(),
+                    result.getService());
+                appendLog(logMessage);
+
+                tableModel.addRow(new Object[]{
+                    result.getHost(),
+                    result.getPort(),
+                    result.getProtocol().getDisplayName(),
+                    result.getService(),
+                    result.getState()
+                });
+            });
         }
 
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setSelectedFile(new File("port_scan_results.txt"));
-
-        int result = fileChooser.showSaveDialog(this);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-
-            try {
-                java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(file));
-                writer.write("端口扫描结果\n");
-                writer.write("保存时间: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + "\n");
-                writer.write("目标主机: " + hostField.getText() + "\n");
-                writer.write("========================================\n\n");
-
-                for (int i = 0; i < tableModel.getRowCount(); i++) {
-                    int port = (int) tableModel.getValueAt(i, 0);
-                    String protocolStr = (String) tableModel.getValueAt(i, 1);
-                    String service = (String) tableModel.getValueAt(i, 2);
-                    String state = (String) tableModel.getValueAt(i, 3);
-                    writer.write(String.format("端口 %d (%s) %s - %s\n", port, protocolStr, state, service));
+        @Override
+        public void onComplete(List<PortScanner.PortResult> openPorts) {
+            SwingUtilities.invokeLater(() -> {
+                String endTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+                appendLog("\n========================================");
+                appendLog("扫描完成时间: " + endTime);
+                appendLog("共发现 " + openPorts.size() + " 个开放端口");
+                appendLog("========================================");
+
+                statusLabel.setText("扫描完成！共发现 " + openPorts.size() + " 个开放端口");
+                progressBar.setValue(100);
+
+                // 恢复按钮状态
+                setRunning(false);
+
+                if (!openPorts.isEmpty() && scanTabs.indexOfComponent(this) >= 0) {
+                    int result = JOptionPane.showConfirmDialog(
+                            PortScannerGUI.this,
+                            host + " 扫描完成！是否保存结果到文件？",
+                            "扫描完成",
+                            JOptionPane.YES_NO_OPTION,
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                    if (result == JOptionPane.YES_OPTION) {
+                        saveResults();
+                    }
                 }
+            });
+        }
 
-                writer.close();
+        @Override
+        public void onError(String error) {
+            SwingUtilities.invokeLater(() -> {
+                appendLog("错误: " + error);
+                JOptionPane.showMessageDialog(PortScannerGUI.this, host + ": " + error, "扫描错误", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+
+        /**
+         * 切换运行状态，同时更新按钮和运行中的扫描数
+         */
+        private void setRunning(boolean running) {
+            if (this.running == running) {
+                return;
+            }
+            this.running = running;
+            cancelButton.setEnabled(running);
+            runningScans += running ? 1 : -1;
+            updateEngineLabel();
+        }
 
-                JOptionPane.showMessageDialog(this,
-                        "结果已保存到: " + file.getAbsolutePath(),
-                        "保存成功",
-                        JOptionPane.INFORMATION_MESSAGE);
-                appendLog("结果已保存到: " + file.getAbsolutePath());
+        /**
+         * 取消扫描
+         */
+        private void cancelScan() {
+            if (running) {
+                scanner.cancel();
+                appendLog("\n用户取消了扫描操作");
+                statusLabel.setText("扫描已取消");
 
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this,
-                        "保存失败: " + e.getMessage(),
-                        "错误",
-                        JOptionPane.ERROR_MESSAGE);
+                setRunning(false);
             }
         }
-    }
 
-    /**
-     * 设置输入控件是否可用
-     */
-    private void setInputEnabled(boolean enabled) {
-        hostField.setEnabled(enabled);
-        startPortField.setEnabled(enabled);
-        endPortField.setEnabled(enabled);
-        threadsField.setEnabled(enabled);
-        protocolComboBox.setEnabled(enabled);
-    }
+        /**
+         * 关闭标签页
+         */
+        private void closeTab() {
+            cancelScan();
+            scanTabs.remove(this);
+        }
 
-    /**
-     * 追加日志
-     */
-    private void appendLog(String message) {
-        logArea.append(message + "\n");
-        logArea.setCaretPosition(logArea.getDocument().getLength());
+        /**
+         * 清空结果
+         */
+        private void clearResults() {
+            int result = JOptionPane.showConfirmDialog(
+                    PortScannerGUI.this,
+                    "确定要清空所有结果吗？",
+                    "确认清空",
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.QUESTION_MESSAGE
+            );
+
+            if (result == JOptionPane.YES_OPTION) {
+                logArea.setText("");
+                tableModel.setRowCount(0);
+                progressBar.setValue(0);
+                statusLabel.setText("就绪");
+            }
+        }
+
+        /**
+         * 保存结果
+         */
+        private void saveResults() {
+            if (tableModel.getRowCount() == 0) {
+                JOptionPane.showMessageDialog(PortScannerGUI.this, "没有可保存的结果！", "提示", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setSelectedFile(new File("port_scan_results.txt"));
+
+            int result = fileChooser.showSaveDialog(PortScannerGUI.this);
+            if (result == JFileChooser.APPROVE_OPTION) {
+                File file = fileChooser.getSelectedFile();
+
+                try {
+                    java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(file));
+                    writer.write("端口扫描结果\n");
+                    writer.write("保存时间: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()) + "\n");
+                    writer.write("目标主机: " + host + "\n");
+                    writer.write("========================================\n\n");
+
+                    for (int i = 0; i < tableModel.getRowCount(); i++) {
+                        String resultHost = (String) tableModel.getValueAt(i, 0);
+                        int port = (int) tableModel.getValueAt(i, 1);
+                        String protocolStr = (String) tableModel.getValueAt(i, 2);
+                        String service = (String) tableModel.getValueAt(i, 3);
+                        String state = (String) tableModel.getValueAt(i, 4);
+                        writer.write(String.format("%s 端口 %d (%s) %s - %s\n", resultHost, port, protocolStr, state, service));
+                    }
+
+                    writer.close();
+
+                    JOptionPane.showMessageDialog(PortScannerGUI.this,
+                            "结果已保存到: " + file.getAbsolutePath(),
+                            "保存成功",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    appendLog("结果已保存到: " + file.getAbsolutePath());
+
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(PortScannerGUI.this,
+                            "保存失败: " + e.getMessage(),
+                            "错误",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+
+        /**
+         * 追加日志
+         */
+        private void appendLog(String message) {
+            logArea.append(message + "\n");
+            logArea.setCaretPosition(logArea.getDocument().getLength());
+        }
     }
 
     /**
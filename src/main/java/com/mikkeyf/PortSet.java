@@ -0,0 +1,211 @@
+package com.mikkeyf;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+/**
+ * 要扫描的端口集合
+ * 描述由逗号或空白分隔的项组成，每项可以是单个端口、端口范围或命名集合，前面加 ! 表示排除，
+ * 例如 "top100, 8000-8100, !8080, db-ports"；排除项在所有包含项之后生效，与书写顺序无关。
+ * 解析结果编译成位图（每个端口一位，全部端口共 8KB），并按 64 位字建立累计计数，
+ * 扫描时第 i 个任务对应的端口由 {@link #portAt(int)} 直接定位，不需要展开成端口列表
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 04:30
+ */
+public final class PortSet {
+
+    public static final int MIN_PORT = 1;
+    public static final int MAX_PORT = 65535;
+
+    // 命名集合，名称不区分大小写
+    private static final Map<String, String> NAMED_SETS = new LinkedHashMap<>();
+
+    static {
+        // nmap 统计的最常见 100 个 TCP 端口
+        NAMED_SETS.put("top100", "7,9,13,21-23,25-26,37,53,79-81,88,106,110-111,113,119,135,139,143-144,179,199,"
+                + "389,427,443-445,465,513-515,543-544,548,554,587,631,646,873,990,993,995,1025-1029,1110,1433,"
+                + "1720,1723,1755,1900,2000-2001,2049,2121,2717,3000,3128,3306,3389,3986,4899,5000,5009,5051,5060,"
+                + "5101,5190,5357,5432,5631,5666,5800,5900,6000-6001,6646,7070,8000,8008-8009,8080-8081,8443,8888,"
+                + "9100,9999-10000,32768,49152-49157");
+        NAMED_SETS.put("db-ports", "1433-1434,1521,2483-2484,3050,3306,5432,5984,6379,7000-7001,7474,8086,8529,"
+                + "9042,9160,9200,9300,11211,26257,27017-27019,28015,50000");
+        NAMED_SETS.put("web-ports", "80-81,443,591,3000,5000,8000,8008,8080-8081,8443,8888,9000,9443");
+        NAMED_SETS.put("mail-ports", "25,110,143,465,587,993,995");
+        NAMED_SETS.put("well-known", "1-1023");
+        NAMED_SETS.put("all", "1-65535");
+    }
+
+    private final long[] words;
+    // rank[i] 为 words[0..i) 中的端口数，rank[words.length] 为总数
+    private final int[] rank;
+
+    private PortSet(BitSet bits) {
+        this.words = bits.toLongArray();
+        this.rank = new int[words.length + 1];
+        for (int i = 0; i < words.length; i++) {
+            rank[i + 1] = rank[i] + Long.bitCount(words[i]);
+        }
+    }
+
+    /**
+     * 解析端口集合描述
+     *
+     * @throws IllegalArgumentException 格式错误、端口越界、命名集合不存在或结果为空时
+     */
+    public static PortSet parse(String spec) {
+        BitSet included = new BitSet(MAX_PORT + 1);
+        BitSet excluded = new BitSet(MAX_PORT + 1);
+        for (String item : spec.trim().split("[,\\s]+")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            if (item.startsWith("!")) {
+                addItem(item.substring(1), excluded);
+            } else {
+                addItem(item, included);
+            }
+        }
+        included.andNot(excluded);
+        if (included.isEmpty()) {
+            throw new IllegalArgumentException("端口集合为空: " + spec);
+        }
+        return new PortSet(included);
+    }
+
+    /**
+     * 连续的端口范围 from..to
+     *
+     * @throws IllegalArgumentException 端口越界或 from 大于 to 时
+     */
+    public static PortSet range(int from, int to) {
+        checkPort(from, from + "-" + to);
+        checkPort(to, from + "-" + to);
+        if (from > to) {
+            throw new IllegalArgumentException("起始端口不能大于结束端口: " + from + "-" + to);
+        }
+        BitSet bits = new BitSet(to + 1);
+        bits.set(from, to + 1);
+        return new PortSet(bits);
+    }
+
+    /**
+     * 所有命名集合的名称
+     */
+    public static Set<String> namedSets() {
+        return Collections.unmodifiableSet(NAMED_SETS.keySet());
+    }
+
+    private static void addItem(String item, BitSet bits) {
+        if (item.isEmpty()) {
+            throw new IllegalArgumentException("端口格式错误: !");
+        }
+        String named = NAMED_SETS.get(item.toLowerCase(Locale.ROOT));
+        if (named != null) {
+            for (String part : named.split(",")) {
+                addItem(part, bits);
+            }
+            return;
+        }
+
+        int dash = item.indexOf('-', 1);
+        try {
+            if (dash < 0) {
+                int port = Integer.parseInt(item);
+                checkPort(port, item);
+                bits.set(port);
+            } else {
+                int from = Integer.parseInt(item.substring(0, dash));
+                int to = Integer.parseInt(item.substring(dash + 1));
+                checkPort(from, item);
+                checkPort(to, item);
+                if (from > to) {
+                    throw new IllegalArgumentException("起始端口不能大于结束端口: " + item);
+                }
+                bits.set(from, to + 1);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("未知的端口或端口集合: " + item + "（可用的集合: "
+                    + String.join(", ", NAMED_SETS.keySet()) + "）");
+        }
+    }
+
+    private static void checkPort(int port, String item) {
+        if (port < MIN_PORT || port > MAX_PORT) {
+            throw new IllegalArgumentException("端口必须在 " + MIN_PORT + "-" + MAX_PORT + " 之间: " + item);
+        }
+    }
+
+    /**
+     * 端口数
+     */
+    public int size() {
+        return rank[words.length];
+    }
+
+    public boolean contains(int port) {
+        int word = port >>> 6;
+        return port >= 0 && word < words.length && (words[word] & (1L << port)) != 0;
+    }
+
+    /**
+     * 最小的端口
+     */
+    public int first() {
+        return portAt(0);
+    }
+
+    /**
+     * 按从小到大顺序的第 index 个端口
+     * 先在累计计数中二分找到所在的字，再在字内跳过 index 之前的位
+     *
+     * @throws IndexOutOfBoundsException index 不在 0..size()-1 时
+     */
+    public int portAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("端口序号越界: " + index);
+        }
+        int low = 0;
+        int high = words.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (rank[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        long word = words[low];
+        for (int skip = index - rank[low]; skip > 0; skip--) {
+            word &= word - 1; // 清除最低位的 1
+        }
+        return (low << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    public BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * 紧凑的描述形式，连续端口合并为范围，例如 "22,80-90,443"
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        BitSet bits = toBitSet();
+        for (int from = bits.nextSetBit(0); from >= 0; ) {
+            int to = bits.nextClearBit(from) - 1;
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(from);
+            if (to > from) {
+                sb.append('-').append(to);
+            }
+            from = bits.nextSetBit(to + 1);
+        }
+        return sb.toString();
+    }
+}
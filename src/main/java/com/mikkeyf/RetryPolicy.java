@@ -0,0 +1,57 @@
+package com.mikkeyf;
+/**
+ * TCP 超时端口的重试策略
+ * 第一轮扫描结束后，只对连接超时的端口再扫描若干轮（主机不可达等已有明确答复的错误不重试），
+ * 每轮开始前按指数退避等待，并使用更长的超时时间
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 01:30
+ */
+public final class RetryPolicy {
+
+    // 不重试
+    public static final RetryPolicy NONE = new RetryPolicy(0, 1.0, 0);
+
+    private final int maxRetries;
+    private final double timeoutMultiplier;
+    private final long backoffMillis;
+
+    /**
+     * @param maxRetries        最多重试轮数
+     * @param timeoutMultiplier 每轮超时时间相对上一轮的倍数
+     * @param backoffMillis     第一轮重试前的等待时间，之后每轮翻倍
+     */
+    public RetryPolicy(int maxRetries, double timeoutMultiplier, long backoffMillis) {
+        if (maxRetries < 0 || timeoutMultiplier < 1.0 || backoffMillis < 0) {
+            throw new IllegalArgumentException("重试参数无效");
+        }
+        this.maxRetries = maxRetries;
+        this.timeoutMultiplier = timeoutMultiplier;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * 默认策略：重试一次，超时时间加倍，等待 200ms
+     */
+    public static RetryPolicy defaultPolicy() {
+        return new RetryPolicy(1, 2.0, 200);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * 第 attempt 次尝试（首轮为 0）使用的超时时间
+     */
+    public int timeoutFor(int attempt, int baseTimeoutMillis) {
+        return (int) Math.min(Integer.MAX_VALUE, baseTimeoutMillis * Math.pow(timeoutMultiplier, attempt));
+    }
+
+    /**
+     * 第 attempt 轮重试（从 1 开始）开始前的等待时间
+     */
+    public long backoffBefore(int attempt) {
+        return attempt <= 0 ? 0 : backoffMillis << Math.min(attempt - 1, 20);
+    }
+}
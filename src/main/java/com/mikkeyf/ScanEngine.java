@@ -0,0 +1,107 @@
+package com.mikkeyf;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+/**
+ * 多个扫描共享的执行引擎
+ * 引擎只有 maxConcurrency 个线程，所有扫描的探测合计不会超过这个并发上限。
+ * 每个扫描对应一个会话（{@link Session}），会话有自己的任务队列；引擎线程按轮询方式依次从各会话取一个任务，
+ * 扫描的工作任务在会话上每完成一个探测就重新排队，因此同时进行的扫描公平地交替使用线程，
+ * 先开始的大扫描不会让后开始的扫描一直等待
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 03:50
+ */
+public class ScanEngine {
+
+    private final int maxConcurrency;
+    private final Object lock = new Object();
+    // 有待执行任务的会话，按轮询顺序排列
+    private final ArrayDeque<Session> ready = new ArrayDeque<>();
+    private boolean shutdown;
+
+    public ScanEngine(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("并发上限必须大于 0");
+        }
+        this.maxConcurrency = maxConcurrency;
+        for (int i = 0; i < maxConcurrency; i++) {
+            Thread thread = new Thread(this::runLoop, "scan-engine-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 在引擎上开始扫描，返回值与 {@link PortScanner#scanAsync(Executor)} 相同
+     * 扫描在引擎上总是按顺序领取方式调度，每个协议的线程数是该扫描在引擎中的并发上限
+     */
+    public CompletableFuture<List<PortScanner.PortResult>> submit(PortScanner scanner) {
+        return scanner.scanAsync(new Session());
+    }
+
+    /**
+     * 停止接受新任务，已排队的任务执行完后引擎线程退出
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void runLoop() {
+        while (true) {
+            Runnable task;
+            synchronized (lock) {
+                while (ready.isEmpty() && !shutdown) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                Session session = ready.poll();
+                if (session == null) {
+                    return;
+                }
+                task = session.tasks.poll();
+                if (!session.tasks.isEmpty()) {
+                    ready.add(session); // 还有任务的会话排到队尾，让其他扫描先执行
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // 扫描任务自行处理异常，这里只保证引擎线程不退出
+            }
+        }
+    }
+
+    /**
+     * 单个扫描在引擎上的任务队列
+     */
+    final class Session implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (lock) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("扫描引擎已关闭");
+                }
+                tasks.add(task);
+                if (tasks.size() == 1) {
+                    ready.add(this);
+                }
+                lock.notify();
+            }
+        }
+    }
+}
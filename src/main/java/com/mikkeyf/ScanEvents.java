@@ -0,0 +1,120 @@
+package com.mikkeyf;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+/**
+ * 扫描过程中发出的 Java Flight Recorder 事件
+ * 未开启录制或事件被禁用时 shouldCommit() 返回 false，事件对象可被 JIT 消除，几乎没有开销。
+ * 各事件的阈值可以用 resources 中的 happy-port.jfc 调整，录制示例：
+ * <pre>
+ * java -XX:StartFlightRecording:settings=default,settings=happy-port.jfc,filename=scan.jfr ...
+ * jfr print --events com.mikkeyf.Probe scan.jfr
+ * </pre>
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 02:40
+ */
+public final class ScanEvents {
+
+    private static final String CATEGORY = "Happy Port";
+
+    private ScanEvents() {
+    }
+
+    /**
+     * 单个端口探测，默认只记录耗时超过 20ms 的探测
+     */
+    @Name("com.mikkeyf.Probe")
+    @Label("端口探测")
+    @Category(CATEGORY)
+    @Threshold("20 ms")
+    @StackTrace(false)
+    static final class ProbeEvent extends Event {
+        @Label("目标主机")
+        String target;
+
+        @Label("目标地址")
+        String address;
+
+        @Label("端口")
+        int port;
+
+        @Label("协议")
+        String protocol;
+
+        @Label("结果")
+        String outcome;
+
+        @Label("轮次")
+        @Description("0 为第一轮，之后为超时重试")
+        int attempt;
+    }
+
+    /**
+     * 一次完整扫描的汇总
+     */
+    @Name("com.mikkeyf.Scan")
+    @Label("扫描")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class ScanEvent extends Event {
+        @Label("目标")
+        String targets;
+
+        @Label("主机数")
+        int hostCount;
+
+        @Label("协议")
+        String protocol;
+
+        @Label("调度方式")
+        String scheduleMode;
+
+        @Label("探测次数")
+        @Description("包含重试")
+        long probes;
+
+        @Label("结果数")
+        int results;
+
+        @Label("已取消")
+        boolean cancelled;
+
+        @Label("结束原因")
+        String stopReason;
+    }
+
+    /**
+     * 工作任务从提交到执行器到开始运行的等待，等待过长说明执行器线程不足或被其他任务占用
+     */
+    @Name("com.mikkeyf.QueueWait")
+    @Label("执行器排队")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class QueueWaitEvent extends Event {
+        @Label("协议")
+        String protocol;
+
+        @Label("轮次")
+        int attempt;
+    }
+
+    /**
+     * TCP 探测因本地临时端口用量过高而等待
+     */
+    @Name("com.mikkeyf.PortThrottle")
+    @Label("临时端口限流")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class PortThrottleEvent extends Event {
+        @Label("用量")
+        int inUse;
+
+        @Label("上限")
+        int limit;
+    }
+}
@@ -0,0 +1,236 @@
+package com.mikkeyf;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+/**
+ * 以 Flow.Publisher 形式发布扫描结果，基于 ScanCallback 的适配器
+ * 扫描的工作线程直接运行在给定的执行器上。结果回调只把结果放入缓冲区，由工作线程在领取下一个任务前、
+ * 或订阅者请求数据时在扫描的锁之外发给订阅者；缓冲区中还有未送出的结果时工作线程不再领取新任务，
+ * 因此缓冲的结果最多只有线程数那么多
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/18 23:20
+ */
+public class ScanPublisher implements Flow.Publisher<PortScanner.PortResult> {
+
+    // 等待需求时检查扫描是否已取消或停止的间隔
+    private static final long STOP_CHECK_MILLIS = 100;
+
+    private final PortScanner scanner;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+    /**
+     * @param scanner  已配置好的扫描器，订阅产生的扫描使用本发布者的回调，扫描器自身的回调不受影响
+     * @param executor 用于运行扫描工作线程的执行器
+     */
+    public ScanPublisher(PortScanner scanner, Executor executor) {
+        this.scanner = Objects.requireNonNull(scanner);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PortScanner.PortResult> subscriber) {
+        Objects.requireNonNull(subscriber);
+
+        // 一次扫描只能产生一次结果流
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("扫描结果只能被订阅一次"));
+            return;
+        }
+
+        ResultSubscription subscription = new ResultSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        scanner.scanAsync(executor, subscription, subscription).whenComplete((results, e) -> subscription.terminate(e));
+    }
+
+    /**
+     * 订阅关系，同时作为扫描器的回调和任务许可
+     * 所有信号都由 drain 发出，同一时刻只有一个线程在发送，保证订阅者的回调不会并发执行
+     */
+    private class ResultSubscription implements Flow.Subscription, PortScanner.ScanCallback, PortScanner.TaskGate {
+        private final Flow.Subscriber<? super PortScanner.PortResult> subscriber;
+        private final ArrayDeque<PortScanner.PortResult> buffer = new ArrayDeque<>();
+        private long demand; // 未满足的请求数量
+        private boolean cancelled; // 订阅者已取消或终止信号已发出
+        private boolean completed; // 扫描正常结束，缓冲区送完后发出 onComplete
+        private Throwable error; // 待发出的错误
+        private boolean draining; // 是否有线程正在发送
+
+        ResultSubscription(Flow.Subscriber<? super PortScanner.PortResult> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (cancelled || error != null) {
+                    return;
+                }
+                if (n <= 0) {
+                    error = new IllegalArgumentException("请求数量必须为正数: " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n; // 防止溢出
+                }
+            }
+            if (n <= 0) {
+                scanner.cancel();
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+                notifyAll();
+            }
+            scanner.cancel();
+        }
+
+        /**
+         * 扫描异常结束时发出错误（正常结束时由 onComplete 回调处理）
+         */
+        void terminate(Throwable e) {
+            if (e == null) {
+                return;
+            }
+            synchronized (this) {
+                if (cancelled || error != null) {
+                    return;
+                }
+                error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            }
+            drain();
+        }
+
+        /**
+         * 在满足需求的范围内发送缓冲的结果，缓冲区送完且扫描已结束时发出终止信号；
+         * 已有线程在发送时直接返回，由该线程在退出前看到新的状态
+         */
+        private void drain() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                PortScanner.PortResult next = null;
+                Throwable failure = null;
+                synchronized (this) {
+                    if (cancelled) {
+                        draining = false;
+                        notifyAll();
+                        return;
+                    }
+                    if (error != null) {
+                        failure = error;
+                        cancelled = true;
+                        buffer.clear();
+                    } else if (demand > 0 && !buffer.isEmpty()) {
+                        next = buffer.poll();
+                        demand--;
+                    } else if (completed && buffer.isEmpty()) {
+                        cancelled = true;
+                    } else {
+                        draining = false;
+                        notifyAll(); // 缓冲区可能已送完，唤醒等待许可的工作线程
+                        return;
+                    }
+                    if (next == null) {
+                        draining = false;
+                        notifyAll();
+                    }
+                }
+                if (next != null) {
+                    subscriber.onNext(next);
+                } else if (failure != null) {
+                    subscriber.onError(failure);
+                    return;
+                } else {
+                    subscriber.onComplete();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 工作线程领取任务前调用：先发送已有的结果，缓冲区中仍有结果时等待订阅者的需求
+         */
+        @Override
+        public boolean awaitPermit(BooleanSupplier stopped) {
+            while (true) {
+                drain();
+                synchronized (this) {
+                    if (cancelled || error != null || stopped.getAsBoolean()) {
+                        return false;
+                    }
+                    if (buffer.isEmpty()) {
+                        return true;
+                    }
+                    try {
+                        // 扫描取消或停止时不会通知这里，定期检查
+                        wait(STOP_CHECK_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onPortFoundDetailed(PortScanner.PortResult result) {
+            // 在扫描的锁内调用，只放入缓冲区，不在这里等待或调用订阅者
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                buffer.add(result);
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void onComplete(List<PortScanner.PortResult> openPorts) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                completed = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onProgress(int currentPort, double percentage) {
+            // 进度不通过结果流发布
+        }
+
+        @Override
+        public void onPortFound(int port, String service) {
+            // 保留兼容性，实际使用onPortFoundDetailed
+        }
+
+        @Override
+        public void onError(String error) {
+            // 单个端口的错误不终止结果流
+        }
+    }
+}
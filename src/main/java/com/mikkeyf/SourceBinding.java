@@ -0,0 +1,130 @@
+package com.mikkeyf;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * TCP 探测使用的本地源地址和端口范围
+ * 描述为逗号分隔的多项，每项是 "地址" 或 "地址:起始端口-结束端口"，IPv6 地址写在方括号中，
+ * 例如 "10.0.0.5:20000-29999, 10.0.0.6, [fd00::5]:40000-49999"。
+ * 未指定端口范围时由系统分配临时端口。各项按轮询方式使用，项内的端口也依次轮换，
+ * 多个源地址可以成倍扩大可用的本地端口数
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 02:00
+ */
+public final class SourceBinding {
+
+    private final List<Entry> entries;
+    private final AtomicLong next = new AtomicLong();
+
+    private static final class Entry {
+        private final InetAddress address;
+        private final int portFrom; // 0 表示由系统分配
+        private final int portCount;
+
+        Entry(InetAddress address, int portFrom, int portCount) {
+            this.address = address;
+            this.portFrom = portFrom;
+            this.portCount = portCount;
+        }
+    }
+
+    private SourceBinding(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * 解析源地址描述
+     *
+     * @throws IllegalArgumentException 格式错误或地址无法解析时
+     */
+    public static SourceBinding parse(String spec) {
+        List<Entry> entries = new ArrayList<>();
+        for (String item : spec.trim().split("[,\\s]+")) {
+            if (!item.isEmpty()) {
+                entries.add(parseEntry(item));
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("请输入源地址");
+        }
+        return new SourceBinding(entries);
+    }
+
+    private static Entry parseEntry(String item) {
+        String address = item;
+        String range = null;
+        if (item.startsWith("[")) {
+            int close = item.indexOf(']');
+            if (close < 0) {
+                throw new IllegalArgumentException("源地址格式错误: " + item);
+            }
+            address = item.substring(1, close);
+            if (close + 1 < item.length()) {
+                if (item.charAt(close + 1) != ':') {
+                    throw new IllegalArgumentException("源地址格式错误: " + item);
+                }
+                range = item.substring(close + 2);
+            }
+        } else if (item.indexOf(':') >= 0 && item.indexOf(':') == item.lastIndexOf(':')) {
+            address = item.substring(0, item.indexOf(':'));
+            range = item.substring(item.indexOf(':') + 1);
+        }
+
+        InetAddress local;
+        try {
+            local = InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("无法解析源地址: " + address);
+        }
+        if (range == null) {
+            return new Entry(local, 0, EphemeralPortMonitor.systemEphemeralPortCount());
+        }
+
+        int dash = range.indexOf('-');
+        int from;
+        int to;
+        try {
+            from = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+            to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("源端口范围格式错误: " + item);
+        }
+        if (from < 1 || to > 65535 || from > to) {
+            throw new IllegalArgumentException("源端口范围必须在 1-65535 之间: " + item);
+        }
+        return new Entry(local, from, to - from + 1);
+    }
+
+    /**
+     * 把未连接的套接字绑定到下一个源地址和端口
+     * 指定端口时开启 SO_REUSEADDR，允许复用仍处于 TIME_WAIT 的本地端口
+     */
+    public void bind(Socket socket) throws IOException {
+        long n = next.getAndIncrement();
+        Entry entry = entries.get((int) (n % entries.size()));
+        if (entry.portFrom == 0) {
+            socket.bind(new InetSocketAddress(entry.address, 0));
+            return;
+        }
+        int port = entry.portFrom + (int) ((n / entries.size()) % entry.portCount);
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(entry.address, port));
+    }
+
+    /**
+     * 所有源地址可用的本地端口总数，可作为 {@link EphemeralPortMonitor} 的容量
+     */
+    public int getCapacity() {
+        long capacity = 0;
+        for (Entry entry : entries) {
+            capacity += entry.portCount;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, capacity);
+    }
+}
@@ -0,0 +1,197 @@
+package com.mikkeyf;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+/**
+ * 扫描目标解析
+ * 支持以逗号或空白分隔的多个目标，每个目标可以是主机名、IPv4/IPv6 地址或 IPv4/IPv6 CIDR 网段，
+ * IPv6 地址可以写在方括号中，例如 "www.163.com, 192.168.1.0/24, [2001:db8::1], fd00::/120"
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 00:10
+ */
+public final class TargetSpec {
+
+    // 单次扫描允许的最大主机数
+    public static final int MAX_HOSTS = 65536;
+
+    private TargetSpec() {
+    }
+
+    /**
+     * 解析目标描述，返回去重后保持原有顺序的主机列表
+     *
+     * @throws IllegalArgumentException 格式错误或主机数超过上限时
+     */
+    public static List<String> parse(String spec) {
+        Set<String> hosts = new LinkedHashSet<>();
+        for (String item : spec.trim().split("[,\\s]+")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            if (item.startsWith("[") && item.endsWith("]")) {
+                item = item.substring(1, item.length() - 1);
+            }
+            boolean ipv6 = item.indexOf(':') >= 0;
+            if (item.indexOf('/') >= 0) {
+                if (ipv6) {
+                    expandIpv6Cidr(item, hosts);
+                } else {
+                    expandIpv4Cidr(item, hosts);
+                }
+            } else if (ipv6) {
+                // 带区域标识（如 fe80::1%eth0）的链路本地地址原样保留，由解析时校验
+                hosts.add(item.indexOf('%') >= 0 ? item : formatIpv6(parseIpv6(item, item)));
+            } else {
+                hosts.add(item);
+            }
+            if (hosts.size() > MAX_HOSTS) {
+                throw new IllegalArgumentException("目标主机数超过上限 " + MAX_HOSTS);
+            }
+        }
+        if (hosts.isEmpty()) {
+            throw new IllegalArgumentException("请输入目标主机地址");
+        }
+        return new ArrayList<>(hosts);
+    }
+
+    /**
+     * 展开 IPv4 CIDR 网段，包含网络地址和广播地址
+     */
+    private static void expandIpv4Cidr(String cidr, Set<String> hosts) {
+        int slash = cidr.indexOf('/');
+        int prefix;
+        try {
+            prefix = Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("网段前缀格式错误: " + cidr);
+        }
+        if (prefix < 0 || prefix > 32) {
+            throw new IllegalArgumentException("IPv4 网段前缀必须在 0-32 之间: " + cidr);
+        }
+        if (32 - prefix > 16) {
+            throw new IllegalArgumentException("网段过大，前缀至少为 /16: " + cidr);
+        }
+
+        long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+        long network = parseIpv4(cidr.substring(0, slash), cidr) & mask;
+        long count = 1L << (32 - prefix);
+        for (long i = 0; i < count; i++) {
+            hosts.add(formatIpv4(network + i));
+        }
+    }
+
+    private static long parseIpv4(String address, String original) {
+        String[] parts = address.split("\\.", -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("IPv4 地址格式错误: " + original);
+        }
+        long value = 0;
+        for (String part : parts) {
+            int octet;
+            try {
+                octet = Integer.parseInt(part);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("IPv4 地址格式错误: " + original);
+            }
+            if (octet < 0 || octet > 255) {
+                throw new IllegalArgumentException("IPv4 地址格式错误: " + original);
+            }
+            value = (value << 8) | octet;
+        }
+        return value;
+    }
+
+    /**
+     * 展开 IPv6 CIDR 网段，主机位最多 16 位（前缀至少为 /112）
+     */
+    private static void expandIpv6Cidr(String cidr, Set<String> hosts) {
+        int slash = cidr.indexOf('/');
+        int prefix;
+        try {
+            prefix = Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("网段前缀格式错误: " + cidr);
+        }
+        if (prefix < 0 || prefix > 128) {
+            throw new IllegalArgumentException("IPv6 网段前缀必须在 0-128 之间: " + cidr);
+        }
+        if (128 - prefix > 16) {
+            throw new IllegalArgumentException("网段过大，IPv6 前缀至少为 /112: " + cidr);
+        }
+
+        byte[] network = parseIpv6(cidr.substring(0, slash), cidr);
+        int hostBits = 128 - prefix;
+        int mask = (0xFFFF << hostBits) & 0xFFFF;
+        int low = (((network[14] & 0xFF) << 8) | (network[15] & 0xFF)) & mask;
+        int count = 1 << hostBits;
+        for (int i = 0; i < count; i++) {
+            int value = low + i;
+            network[14] = (byte) (value >> 8);
+            network[15] = (byte) value;
+            hosts.add(formatIpv6(network));
+        }
+    }
+
+    private static byte[] parseIpv6(String address, String original) {
+        try {
+            // 含冒号的字符串按字面地址解析，不会查询 DNS
+            InetAddress parsed = InetAddress.getByName(address);
+            if (parsed instanceof Inet6Address) {
+                return parsed.getAddress();
+            }
+        } catch (UnknownHostException e) {
+            // 按格式错误处理
+        }
+        throw new IllegalArgumentException("IPv6 地址格式错误: " + original);
+    }
+
+    /**
+     * 按 RFC 5952 的压缩形式输出 IPv6 地址，最长的连续全零段写成 "::"
+     */
+    private static String formatIpv6(byte[] address) {
+        int[] groups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            groups[i] = ((address[i * 2] & 0xFF) << 8) | (address[i * 2 + 1] & 0xFF);
+        }
+        int bestStart = -1;
+        int bestLength = 1; // 单独一个零段不压缩
+        for (int i = 0; i < 8; ) {
+            if (groups[i] != 0) {
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < 8 && groups[j] == 0) {
+                j++;
+            }
+            if (j - i > bestLength) {
+                bestStart = i;
+                bestLength = j - i;
+            }
+            i = j;
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                text.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(groups[i]));
+        }
+        return text.toString();
+    }
+
+    private static String formatIpv4(long value) {
+        return ((value >> 24) & 0xFF) + "." + ((value >> 16) & 0xFF) + "." + ((value >> 8) & 0xFF) + "." + (value & 0xFF);
+    }
+}
@@ -0,0 +1,299 @@
+package com.mikkeyf;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+/**
+ * UDP探测数据库，格式参照 nmap-payloads：
+ * <pre>
+ * # 注释
+ * udp 53,5353 "\x00\x00\x10\x00" "\x00\x00\x00\x00"
+ * udp 7,13,37 "\r\n\r\n"
+ * </pre>
+ * 每条记录以 udp 开头，后跟端口列表（逗号分隔，可用 a-b 表示范围）和一个或多个字符串，
+ * 相邻字符串会拼接成一个载荷；同一端口出现在多条记录中时拥有多个载荷。
+ * 载荷加载后编译为共享的只读 ByteBuffer，可被多个线程同时读取（只能使用绝对位置读取）
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/18 23:45
+ */
+public final class UdpPayloadDatabase {
+
+    // 类路径中的默认探测数据库
+    private static final String DEFAULT_RESOURCE = "/udp-payloads";
+
+    private static final UdpPayloadDatabase EMPTY = new UdpPayloadDatabase(new TreeMap<>());
+
+    private final int[] ports;                 // 升序排列，供二分查找
+    private final List<List<ByteBuffer>> payloads; // 与 ports 一一对应
+    private final int maxPayloadLength;
+    private final int payloadCount;
+
+    private UdpPayloadDatabase(SortedMap<Integer, List<byte[]>> entries) {
+        int totalLength = 0;
+        int count = 0;
+        int maxLength = 0;
+        for (List<byte[]> list : entries.values()) {
+            for (byte[] payload : list) {
+                totalLength += payload.length;
+                maxLength = Math.max(maxLength, payload.length);
+                count++;
+            }
+        }
+
+        // 所有载荷放入同一块缓冲区，每个载荷是其中的只读切片
+        ByteBuffer backing = ByteBuffer.allocate(totalLength);
+        this.ports = new int[entries.size()];
+        List<List<ByteBuffer>> payloadLists = new ArrayList<>(entries.size());
+        int i = 0;
+        for (Map.Entry<Integer, List<byte[]>> entry : entries.entrySet()) {
+            List<ByteBuffer> slices = new ArrayList<>(entry.getValue().size());
+            for (byte[] payload : entry.getValue()) {
+                int start = backing.position();
+                backing.put(payload);
+                slices.add(backing.slice(start, payload.length).asReadOnlyBuffer());
+            }
+            ports[i] = entry.getKey();
+            payloadLists.add(Collections.unmodifiableList(slices));
+            i++;
+        }
+        this.payloads = payloadLists;
+        this.maxPayloadLength = maxLength;
+        this.payloadCount = count;
+    }
+
+    /**
+     * 获取空数据库（所有端口都发送空数据包）
+     */
+    public static UdpPayloadDatabase empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 获取类路径中自带的默认探测数据库，首次调用时加载
+     */
+    public static UdpPayloadDatabase getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static final class DefaultHolder {
+        private static final UdpPayloadDatabase INSTANCE = loadDefault();
+
+        private static UdpPayloadDatabase loadDefault() {
+            try (InputStream in = UdpPayloadDatabase.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (in == null) {
+                    return EMPTY;
+                }
+                return load(in, DEFAULT_RESOURCE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("加载默认UDP探测数据库失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 从文件加载探测数据库
+     */
+    public static UdpPayloadDatabase load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return load(in, file.toString());
+        }
+    }
+
+    /**
+     * 从输入流加载探测数据库
+     *
+     * @param name 数据来源名称，仅用于错误信息
+     */
+    public static UdpPayloadDatabase load(InputStream in, String name) throws IOException {
+        // 按 ISO-8859-1 读取，每个字符正好对应一个字节
+        String text = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+        return new UdpPayloadDatabase(new Parser(text, name).parse());
+    }
+
+    /**
+     * 获取端口对应的所有载荷，没有时返回空列表
+     * 返回的缓冲区在线程间共享，只能使用绝对位置读取或先 duplicate()
+     */
+    public List<ByteBuffer> getPayloads(int port) {
+        int index = Arrays.binarySearch(ports, port);
+        return index >= 0 ? payloads.get(index) : Collections.emptyList();
+    }
+
+    /**
+     * 最长载荷的字节数，用于预先分配发送缓冲区
+     */
+    public int getMaxPayloadLength() {
+        return maxPayloadLength;
+    }
+
+    /**
+     * 拥有载荷的端口数量
+     */
+    public int getPortCount() {
+        return ports.length;
+    }
+
+    /**
+     * 载荷总数
+     */
+    public int getPayloadCount() {
+        return payloadCount;
+    }
+
+    /**
+     * 探测数据库文件解析器
+     */
+    private static final class Parser {
+        private final String text;
+        private final String name;
+        private int pos;
+        private int line = 1;
+        private final SortedMap<Integer, List<byte[]>> entries = new TreeMap<>();
+
+        Parser(String text, String name) {
+            this.text = text;
+            this.name = name;
+        }
+
+        SortedMap<Integer, List<byte[]>> parse() throws IOException {
+            while (skipBlank()) {
+                String keyword = readWord();
+                if (!"udp".equalsIgnoreCase(keyword)) {
+                    throw error("应为 udp，实际为 " + keyword);
+                }
+                if (!skipBlank()) {
+                    throw error("缺少端口列表");
+                }
+                int[] entryPorts = parsePorts(readWord());
+
+                // 相邻的字符串拼接为一个载荷
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                int strings = 0;
+                while (skipBlank() && text.charAt(pos) == '"') {
+                    readString(payload);
+                    strings++;
+                }
+                if (strings == 0) {
+                    throw error("缺少载荷字符串");
+                }
+
+                // nmap 格式中可选的 source 源端口，此处忽略
+                if (skipBlank() && text.startsWith("source", pos)) {
+                    readWord();
+                    skipBlank();
+                    readWord();
+                }
+
+                byte[] bytes = payload.toByteArray();
+                for (int port : entryPorts) {
+                    entries.computeIfAbsent(port, p -> new ArrayList<>()).add(bytes);
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * 跳过空白和注释，返回是否还有内容
+         */
+        private boolean skipBlank() {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '#') {
+                    while (pos < text.length() && text.charAt(pos) != '\n') {
+                        pos++;
+                    }
+                } else if (Character.isWhitespace(c)) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    pos++;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String readWord() {
+            int start = pos;
+            while (pos < text.length() && !Character.isWhitespace(text.charAt(pos))
+                    && text.charAt(pos) != '"' && text.charAt(pos) != '#') {
+                pos++;
+            }
+            return text.substring(start, pos);
+        }
+
+        private int[] parsePorts(String spec) throws IOException {
+            BitSet set = new BitSet(65536);
+            for (String part : spec.split(",")) {
+                try {
+                    int dash = part.indexOf('-');
+                    int from = Integer.parseInt(dash < 0 ? part : part.substring(0, dash));
+                    int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1));
+                    if (from < 1 || to > 65535 || from > to) {
+                        throw error("端口范围无效: " + part);
+                    }
+                    set.set(from, to + 1);
+                } catch (NumberFormatException e) {
+                    throw error("端口格式错误: " + part);
+                }
+            }
+            return set.stream().toArray();
+        }
+
+        private void readString(ByteArrayOutputStream out) throws IOException {
+            pos++; // 跳过起始引号
+            while (true) {
+                if (pos >= text.length() || text.charAt(pos) == '\n') {
+                    throw error("字符串未结束");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return;
+                }
+                if (c != '\\') {
+                    out.write(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    throw error("字符串未结束");
+                }
+                char escape = text.charAt(pos++);
+                switch (escape) {
+                    case 'x':
+                        if (pos + 2 > text.length()) {
+                            throw error("\\x 转义不完整");
+                        }
+                        try {
+                            out.write(Integer.parseInt(text.substring(pos, pos + 2), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("\\x 转义格式错误: " + text.substring(pos, pos + 2));
+                        }
+                        pos += 2;
+                        break;
+                    case '0':
+                        out.write(0);
+                        break;
+                    case 'r':
+                        out.write('\r');
+                        break;
+                    case 'n':
+                        out.write('\n');
+                        break;
+                    case 't':
+                        out.write('\t');
+                        break;
+                    default:
+                        out.write(escape); // \\ 和 \" 等
+                }
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException(name + " 第 " + line + " 行: " + message);
+        }
+    }
+}
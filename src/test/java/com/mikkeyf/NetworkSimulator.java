@@ -0,0 +1,440 @@
+package com.mikkeyf;
+import javax.net.SocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+/**
+ * 本地网络模拟器，在回环地址上模拟一台行为可配置的目标主机，用于离线复现扫描场景
+ * <p>
+ * 服务端真实存在的行为：
+ * <ul>
+ *   <li>TCP 接受：监听并立即关闭连接</li>
+ *   <li>TCP 拒绝：端口只绑定不监听，内核回复 RST</li>
+ *   <li>TCP 静默丢弃：监听但从不 accept，并用填充连接占满全连接队列，之后的 SYN 被内核丢弃（Linux 行为）</li>
+ *   <li>UDP 回显 / 不回复 / 关闭（端口不绑定，由内核回复 ICMP 端口不可达）</li>
+ * </ul>
+ * 回环网络本身没有延迟，TCP 握手又由内核完成，因此 TCP 的延迟、抖动、丢包和延迟接受
+ * 由 {@link #getSocketFactory()} 返回的套接字在客户端 connect 时模拟；UDP 的延迟、抖动和丢包在服务端回复时模拟。
+ * 每次丢包和抖动都由 (种子, 协议, 端口, 该端口的第几次探测) 派生，与线程的执行顺序无关，
+ * 同一种子的并发扫描因此得到相同的链路条件
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 00:40
+ */
+public class NetworkSimulator implements Closeable {
+
+    /**
+     * TCP 端口行为
+     */
+    public enum TcpBehavior {
+        ACCEPT("接受"),
+        REFUSE("拒绝"),
+        DROP("静默丢弃"),
+        DELAYED_ACCEPT("延迟接受");
+
+        private final String displayName;
+
+        TcpBehavior(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * UDP 端口行为
+     */
+    public enum UdpBehavior {
+        ECHO("回显"),
+        NO_REPLY("不回复"),
+        CLOSED("关闭");
+
+        private final String displayName;
+
+        UdpBehavior(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    // 填满 DROP 端口全连接队列时最多建立的填充连接数
+    private static final int MAX_FILLER_CONNECTIONS = 16;
+
+    // 派生随机数时区分协议和用途
+    private static final int TCP = 1;
+    private static final int UDP = 2;
+    private static final int OUTBOUND_LOSS = 1;
+    private static final int RETURN_LOSS = 2;
+    private static final int JITTER = 3;
+
+    private final InetAddress address = InetAddress.getLoopbackAddress();
+    private final long seed;
+    // 每个端口已收到的探测次数
+    private final AtomicIntegerArray tcpAttempts = new AtomicIntegerArray(65536);
+    private final AtomicIntegerArray udpAttempts = new AtomicIntegerArray(65536);
+    private final Map<Integer, TcpBehavior> tcpBehaviors = new TreeMap<>();
+    private final Map<Integer, Integer> tcpDelays = new HashMap<>(); // 延迟接受的端口 -> 延迟毫秒数
+    private final Map<Integer, UdpBehavior> udpBehaviors = new TreeMap<>();
+
+    private int latencyMillis;
+    private int jitterMillis;
+    private double lossRate;
+
+    private final List<Closeable> resources = new ArrayList<>();
+    private Selector selector;
+    private Thread selectorThread;
+    private ScheduledExecutorService replyScheduler;
+    private volatile boolean running;
+
+    public NetworkSimulator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 单向链路延迟（毫秒）
+     */
+    public void setLatency(int latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * 延迟抖动上限（毫秒），每个包在 [0, jitter] 内随机增加
+     */
+    public void setJitter(int jitterMillis) {
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * 丢包率（0-1）
+     */
+    public void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    public void setTcpBehavior(int port, TcpBehavior behavior) {
+        tcpBehaviors.put(port, behavior);
+    }
+
+    /**
+     * 设置延迟接受的TCP端口，连接在 delayMillis 之后才建立
+     */
+    public void setDelayedAccept(int port, int delayMillis) {
+        tcpBehaviors.put(port, TcpBehavior.DELAYED_ACCEPT);
+        tcpDelays.put(port, delayMillis);
+    }
+
+    public void setUdpBehavior(int port, UdpBehavior behavior) {
+        udpBehaviors.put(port, behavior);
+    }
+
+    public TcpBehavior getTcpBehavior(int port) {
+        return tcpBehaviors.getOrDefault(port, TcpBehavior.REFUSE);
+    }
+
+    public int getTcpDelay(int port) {
+        return tcpDelays.getOrDefault(port, 0);
+    }
+
+    public UdpBehavior getUdpBehavior(int port) {
+        return udpBehaviors.getOrDefault(port, UdpBehavior.CLOSED);
+    }
+
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    public int getLatency() {
+        return latencyMillis;
+    }
+
+    public int getJitter() {
+        return jitterMillis;
+    }
+
+    public double getLossRate() {
+        return lossRate;
+    }
+
+    /**
+     * 绑定所有配置的端口并启动模拟
+     *
+     * @throws IOException 端口已被占用等原因无法绑定时
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        replyScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "network-simulator-reply");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (Map.Entry<Integer, TcpBehavior> entry : tcpBehaviors.entrySet()) {
+                startTcpPort(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Integer, UdpBehavior> entry : udpBehaviors.entrySet()) {
+                startUdpPort(entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "network-simulator");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    private void startTcpPort(int port, TcpBehavior behavior) throws IOException {
+        InetSocketAddress local = new InetSocketAddress(address, port);
+        switch (behavior) {
+            case ACCEPT:
+            case DELAYED_ACCEPT: {
+                ServerSocketChannel server = ServerSocketChannel.open();
+                resources.add(server);
+                server.bind(local);
+                server.configureBlocking(false);
+                server.register(selector, SelectionKey.OP_ACCEPT);
+                break;
+            }
+            case DROP: {
+                // 监听但从不 accept，建立填充连接直到全连接队列满、新连接超时为止
+                ServerSocketChannel server = ServerSocketChannel.open();
+                resources.add(server);
+                server.bind(local, 1);
+                for (int i = 0; i < MAX_FILLER_CONNECTIONS; i++) {
+                    Socket filler = new Socket();
+                    try {
+                        filler.connect(local, 200);
+                        resources.add(filler);
+                    } catch (SocketTimeoutException e) {
+                        filler.close();
+                        break;
+                    }
+                }
+                break;
+            }
+            case REFUSE: {
+                // 只绑定不监听，占住端口并让内核回复 RST
+                Socket reserved = new Socket();
+                resources.add(reserved);
+                reserved.bind(local);
+                break;
+            }
+        }
+    }
+
+    private void startUdpPort(int port, UdpBehavior behavior) throws IOException {
+        if (behavior == UdpBehavior.CLOSED) {
+            return;
+        }
+        DatagramChannel channel = DatagramChannel.open();
+        resources.add(channel);
+        channel.bind(new InetSocketAddress(address, port));
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, behavior);
+    }
+
+    private void selectLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(65536);
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        SocketChannel client = ((ServerSocketChannel) key.channel()).accept();
+                        if (client != null) {
+                            client.close();
+                        }
+                    } else if (key.isReadable()) {
+                        handleDatagram((DatagramChannel) key.channel(), (UdpBehavior) key.attachment(), buffer);
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                return;
+            } catch (IOException e) {
+                // 单个连接出错不影响模拟器
+            }
+        }
+    }
+
+    private void handleDatagram(DatagramChannel channel, UdpBehavior behavior, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        SocketAddress sender = channel.receive(buffer);
+        if (sender == null || behavior != UdpBehavior.ECHO) {
+            return;
+        }
+        int port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        int attempt = udpAttempts.getAndIncrement(port);
+        // 请求和回复各经过一次链路
+        if (isLost(UDP, port, attempt)) {
+            return;
+        }
+        buffer.flip();
+        ByteBuffer reply = ByteBuffer.allocate(buffer.remaining()).put(buffer).flip();
+        long delay = 2L * delay(UDP, port, attempt);
+        replyScheduler.schedule(() -> {
+            try {
+                channel.send(reply, sender);
+            } catch (IOException e) {
+                // 模拟器已关闭
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 一次单向传输的延迟（毫秒）
+     */
+    private int delay(int protocol, int port, int attempt) {
+        if (jitterMillis <= 0) {
+            return latencyMillis;
+        }
+        return latencyMillis + (int) Long.remainderUnsigned(draw(protocol, port, attempt, JITTER), jitterMillis + 1);
+    }
+
+    /**
+     * 请求或回复任一方向丢失即视为丢包
+     */
+    private boolean isLost(int protocol, int port, int attempt) {
+        return lossRate > 0 && (chance(draw(protocol, port, attempt, OUTBOUND_LOSS)) < lossRate
+                || chance(draw(protocol, port, attempt, RETURN_LOSS)) < lossRate);
+    }
+
+    /**
+     * 由种子、协议、端口、探测次数和用途派生的 64 位随机数（SplitMix64 逐项混合）
+     */
+    private long draw(int protocol, int port, int attempt, int use) {
+        long z = mix(seed ^ protocol);
+        z = mix(z ^ port);
+        z = mix(z ^ attempt);
+        return mix(z ^ use);
+    }
+
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 把随机数换算为 [0, 1) 内的均匀分布
+     */
+    private static double chance(long draw) {
+        return (draw >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 返回模拟TCP链路条件的套接字工厂，配合 {@link PortScanner#setSocketFactory(SocketFactory)} 使用
+     */
+    public SocketFactory getSocketFactory() {
+        return new SocketFactory() {
+            @Override
+            public Socket createSocket() {
+                return new ImpairedSocket();
+            }
+
+            @Override
+            public Socket createSocket(String host, int port) throws IOException {
+                return connected(new InetSocketAddress(host, port));
+            }
+
+            @Override
+            public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+                return connected(new InetSocketAddress(host, port));
+            }
+
+            @Override
+            public Socket createSocket(InetAddress host, int port) throws IOException {
+                return connected(new InetSocketAddress(host, port));
+            }
+
+            @Override
+            public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+                return connected(new InetSocketAddress(address, port));
+            }
+
+            private Socket connected(InetSocketAddress endpoint) throws IOException {
+                Socket socket = new ImpairedSocket();
+                socket.connect(endpoint);
+                return socket;
+            }
+        };
+    }
+
+    /**
+     * 在 connect 时按链路条件和端口的延迟接受设置等待，丢包时表现为超时
+     */
+    private class ImpairedSocket extends Socket {
+        @Override
+        public void connect(SocketAddress endpoint, int timeout) throws IOException {
+            int port = endpoint instanceof InetSocketAddress ? ((InetSocketAddress) endpoint).getPort() : 0;
+            int attempt = tcpAttempts.getAndIncrement(port);
+            // SYN 和 SYN-ACK 各经过一次链路
+            boolean lost = isLost(TCP, port, attempt);
+            long delay = 2L * delay(TCP, port, attempt) + getTcpDelay(port);
+
+            if (lost || (timeout > 0 && delay >= timeout)) {
+                sleep(timeout > 0 ? timeout : delay);
+                throw new SocketTimeoutException("模拟超时");
+            }
+            sleep(delay);
+            super.connect(endpoint, timeout > 0 ? (int) (timeout - delay) : 0);
+        }
+
+        private void sleep(long millis) throws IOException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("模拟连接被中断");
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+        resources.clear();
+        if (replyScheduler != null) {
+            replyScheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.mikkeyf;
+import java.io.IOException;
+import java.util.*;
+/**
+ * 基于 {@link NetworkSimulator} 的端到端扫描性能测试
+ * 在回环地址上生成一台固定种子的模拟主机，按不同协议、调度方式和线程数执行扫描，
+ * 输出耗时、吞吐量和准确率报告，可在本机离线发现速度或正确性的回退
+ *
+ * @Author: Mikkeyf
+ * @CreateTime: 2026/10/19 01:05
+ */
+public class ScanBenchmark {
+
+    private final NetworkSimulator simulator;
+    private final int startPort;
+    private final int endPort;
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+
+    public ScanBenchmark(NetworkSimulator simulator, int startPort, int endPort) {
+        this.simulator = simulator;
+        this.startPort = startPort;
+        this.endPort = endPort;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * 单次扫描的测量结果
+     */
+    public static class Measurement {
+        private final PortScanner.Protocol protocol;
+        private final PortScanner.ScheduleMode scheduleMode;
+        private final int threads;
+        private final long elapsedMillis;
+        private final int probes;
+        private final int correct;
+        private final int falsePositives; // 实际关闭却报告为非关闭
+        private final int falseNegatives; // 实际非关闭却报告为其他状态
+
+        Measurement(PortScanner.Protocol protocol, PortScanner.ScheduleMode scheduleMode, int threads,
+                    long elapsedMillis, int probes, int correct, int falsePositives, int falseNegatives) {
+            this.protocol = protocol;
+            this.scheduleMode = scheduleMode;
+            this.threads = threads;
+            this.elapsedMillis = elapsedMillis;
+            this.probes = probes;
+            this.correct = correct;
+            this.falsePositives = falsePositives;
+            this.falseNegatives = falseNegatives;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getProbesPerSecond() {
+            return probes * 1000.0 / Math.max(1, elapsedMillis);
+        }
+
+        public double getAccuracy() {
+            return correct * 100.0 / probes;
+        }
+
+        public int getFalsePositives() {
+            return falsePositives;
+        }
+
+        public int getFalseNegatives() {
+            return falseNegatives;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %-6s %6d %10d %10.1f %8.2f%% %6d %6d",
+                    protocol.getDisplayName(), scheduleMode.getDisplayName(), threads,
+                    elapsedMillis, getProbesPerSecond(), getAccuracy(), falsePositives, falseNegatives);
+        }
+    }
+
+    /**
+     * 执行一次扫描并与模拟器的配置对比
+     */
+    public Measurement run(PortScanner.Protocol protocol, PortScanner.ScheduleMode scheduleMode, int threads) {
+        PortScanner scanner = new PortScanner(simulator.getAddress().getHostAddress(), startPort, endPort, threads);
+        scanner.setProtocol(protocol);
+        scanner.setScheduleMode(scheduleMode);
+        scanner.setSocketFactory(simulator.getSocketFactory());
+        scanner.setRetryPolicy(retryPolicy);
+        scanner.setReportFiltered(true);
+
+        long start = System.nanoTime();
+        List<PortScanner.PortResult> results = scanner.scanAsync().join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Map<String, PortScanner.PortState> reported = new HashMap<>();
+        for (PortScanner.PortResult result : results) {
+            reported.put(result.getProtocol() + "/" + result.getPort(), result.getPortState());
+        }
+
+        int probes = 0;
+        int correct = 0;
+        int falsePositives = 0;
+        int falseNegatives = 0;
+        for (PortScanner.Protocol p : new PortScanner.Protocol[]{PortScanner.Protocol.TCP, PortScanner.Protocol.UDP}) {
+            if (protocol != p && protocol != PortScanner.Protocol.BOTH) {
+                continue;
+            }
+            for (int port = startPort; port <= endPort; port++) {
+                PortScanner.PortState expected = expectedState(p, port);
+                PortScanner.PortState actual = reported.getOrDefault(p + "/" + port, PortScanner.PortState.CLOSED);
+                probes++;
+                if (actual == expected) {
+                    correct++;
+                } else if (expected == PortScanner.PortState.CLOSED) {
+                    falsePositives++;
+                } else {
+                    falseNegatives++;
+                }
+            }
+        }
+        return new Measurement(protocol, scheduleMode, threads, elapsedMillis, probes, correct, falsePositives, falseNegatives);
+    }
+
+    /**
+     * 模拟器配置对应的真实端口状态
+     */
+    private PortScanner.PortState expectedState(PortScanner.Protocol protocol, int port) {
+        if (protocol == PortScanner.Protocol.TCP) {
+            switch (simulator.getTcpBehavior(port)) {
+                case ACCEPT:
+                case DELAYED_ACCEPT:
+                    return PortScanner.PortState.OPEN;
+                case DROP:
+                    return PortScanner.PortState.FILTERED;
+                default:
+                    return PortScanner.PortState.CLOSED;
+            }
+        }
+        switch (simulator.getUdpBehavior(port)) {
+            case ECHO:
+                return PortScanner.PortState.OPEN;
+            case NO_REPLY:
+                return PortScanner.PortState.OPEN_OR_FILTERED;
+            default:
+                return PortScanner.PortState.CLOSED;
+        }
+    }
+
+    /**
+     * 按固定比例随机生成各端口的行为
+     * TCP：10% 接受，5% 延迟接受（50-450ms），5% 静默丢弃，其余拒绝；
+     * UDP：5% 回显，5% 不回复，其余关闭
+     */
+    public static NetworkSimulator createScenario(int startPort, int endPort, long seed) {
+        NetworkSimulator simulator = new NetworkSimulator(seed);
+        Random random = new Random(seed);
+        for (int port = startPort; port <= endPort; port++) {
+            double tcp = random.nextDouble();
+            if (tcp < 0.10) {
+                simulator.setTcpBehavior(port, NetworkSimulator.TcpBehavior.ACCEPT);
+            } else if (tcp < 0.15) {
+                simulator.setDelayedAccept(port, 50 + random.nextInt(401));
+            } else if (tcp < 0.20) {
+                simulator.setTcpBehavior(port, NetworkSimulator.TcpBehavior.DROP);
+            } else {
+                simulator.setTcpBehavior(port, NetworkSimulator.TcpBehavior.REFUSE);
+            }
+
+            double udp = random.nextDouble();
+            if (udp < 0.05) {
+                simulator.setUdpBehavior(port, NetworkSimulator.UdpBehavior.ECHO);
+            } else if (udp < 0.10) {
+                simulator.setUdpBehavior(port, NetworkSimulator.UdpBehavior.NO_REPLY);
+            } else {
+                simulator.setUdpBehavior(port, NetworkSimulator.UdpBehavior.CLOSED);
+            }
+        }
+        return simulator;
+    }
+
+    /**
+     * 命令行入口
+     */
+    public static void main(String[] args) {
+        int startPort = 40000;
+        int portCount = 200;
+        int[] threadCounts = {16, 64};
+        long seed = 42;
+        int latency = 2;
+        int jitter = 3;
+        double loss = 0.01;
+        int retries = 0;
+        List<PortScanner.Protocol> protocols = Arrays.asList(PortScanner.Protocol.values());
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 < args.length) {
+                switch (args[i]) {
+                    case "-s":
+                    case "--start-port":
+                        startPort = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-n":
+                    case "--ports":
+                        portCount = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-t":
+                    case "--threads":
+                        threadCounts = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                        break;
+                    case "-p":
+                    case "--protocol":
+                        protocols = Collections.singletonList(PortScanner.Protocol.valueOf(args[i + 1].toUpperCase()));
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[i + 1]);
+                        break;
+                    case "--latency":
+                        latency = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--jitter":
+                        jitter = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--loss":
+                        loss = Double.parseDouble(args[i + 1]);
+                        break;
+                    case "-r":
+                    case "--retries":
+                        retries = Integer.parseInt(args[i + 1]);
+                        break;
+                }
+            }
+        }
+
+        int endPort = startPort + portCount - 1;
+        NetworkSimulator simulator = createScenario(startPort, endPort, seed);
+        simulator.setLatency(latency);
+        simulator.setJitter(jitter);
+        simulator.setLossRate(loss);
+
+        try {
+            simulator.start();
+        } catch (IOException e) {
+            System.err.println("启动网络模拟器失败（端口 " + startPort + "-" + endPort + " 可能已被占用）: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.printf("模拟目标: %s 端口 %d-%d，延迟 %dms，抖动 %dms，丢包率 %.1f%%，种子 %d，TCP重试 %d 次%n",
+                    simulator.getAddress().getHostAddress(), startPort, endPort, latency, jitter, loss * 100, seed, retries);
+            System.out.println("-".repeat(72));
+            System.out.printf("%-8s %-6s %6s %10s %10s %9s %6s %6s%n",
+                    "协议", "调度", "线程", "耗时(ms)", "探测/秒", "准确率", "误报", "漏报");
+
+            ScanBenchmark benchmark = new ScanBenchmark(simulator, startPort, endPort);
+            if (retries > 0) {
+                benchmark.setRetryPolicy(new RetryPolicy(retries, 2.0, 200));
+            }
+            for (PortScanner.Protocol protocol : protocols) {
+                for (PortScanner.ScheduleMode mode : PortScanner.ScheduleMode.values()) {
+                    for (int threads : threadCounts) {
+                        System.out.println(benchmark.run(protocol, mode, threads));
+                    }
+                }
+            }
+            System.out.println("-".repeat(72));
+        } finally {
+            simulator.close();
+        }
+    }
+}